@@ -2,10 +2,16 @@ package searchengine;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.security.Security;
 
 @SpringBootApplication
+@EnableScheduling
 public class Application {
     public static void main(String[] args) {
+        // Кэшируем DNS-ответы, чтобы не разрешать имя хоста заново при обходе каждой страницы
+        Security.setProperty("networkaddress.cache.ttl", "300");
         SpringApplication.run(Application.class, args);
     }
 }
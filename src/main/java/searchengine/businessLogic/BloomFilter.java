@@ -0,0 +1,117 @@
+package searchengine.businessLogic;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Фильтр Блума для строк. Битовый массив хранится вне кучи, поэтому даже для десятков
+ * миллионов адресов фильтр занимает несколько десятков мегабайт и не нагружает сборщик мусора.
+ * Фильтр может ошибочно считать новую строку уже добавленной (с заданной вероятностью),
+ * но никогда не пропускает уже добавленную.
+ */
+public class BloomFilter {
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int MAX_WORDS = Integer.MAX_VALUE / Long.BYTES;
+    private final ByteBuffer bits;
+    private final long size;
+    private final int hashes;
+
+    /**
+     * @param expectedInsertions ожидаемое количество строк
+     * @param falsePositiveRate  допустимая вероятность ложного срабатывания
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long optimal = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.min(MAX_WORDS, Math.max(1, (optimal + Long.SIZE - 1) / Long.SIZE));
+
+        this.bits = ByteBuffer.allocateDirect((int) (words * Long.BYTES));
+        this.size = words * Long.SIZE;
+        this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+    }
+
+    /**
+     * Добавляет строку в фильтр
+     *
+     * @param value строка
+     * @return true, если строки точно не было в фильтре
+     */
+    public boolean put(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        boolean changed = false;
+
+        for (int i = 0; i < hashes; i++) {
+            changed |= set(Math.floorMod(h1 + i * h2, size));
+        }
+
+        return changed;
+    }
+
+    /**
+     * Проверяет, могла ли строка быть добавлена в фильтр
+     *
+     * @param value строка
+     * @return false, если строки точно нет в фильтре
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            long word = (long) WORDS.getVolatile(bits, (int) (bit >>> 6) * Long.BYTES);
+
+            if ((word & 1L << (bit & 63)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Возвращает размер битового массива в байтах
+     */
+    public long getSizeInBytes() {
+        return size / Byte.SIZE;
+    }
+
+    private boolean set(long bit) {
+        int offset = (int) (bit >>> 6) * Long.BYTES;
+        long mask = 1L << (bit & 63);
+        long word;
+
+        do {
+            word = (long) WORDS.getVolatile(bits, offset);
+
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!WORDS.compareAndSet(bits, offset, word, word | mask));
+
+        return true;
+    }
+
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
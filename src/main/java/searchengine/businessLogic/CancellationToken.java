@@ -0,0 +1,75 @@
+package searchengine.businessLogic;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Признак остановки индексации сайта, общий для всех этапов: обхода, лемматизации и записи в БД.
+ * Этапы проверяют его перед каждым шагом, а долгие операции, например открытые HTTP-запросы,
+ * регистрируют действия, которые прерывают их сразу при остановке.
+ */
+public class CancellationToken {
+    private final Set<Runnable> callbacks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile long cancelledAt;
+
+    /**
+     * Останавливает индексацию и выполняет зарегистрированные действия. Повторные вызовы ничего не делают.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            cancelledAt = System.nanoTime();
+            cancelled = true;
+        }
+
+        // действие выполняет тот, кто первым снимет его регистрацию
+        for (Runnable action : new ArrayList<>(callbacks)) {
+            if (callbacks.remove(action)) {
+                action.run();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Регистрирует действие, которое будет выполнено при остановке. Если индексация уже остановлена,
+     * действие выполняется сразу.
+     *
+     * @param action действие
+     * @return регистрация, закрытие которой отменяет действие
+     */
+    public Registration onCancel(Runnable action) {
+        callbacks.add(action);
+
+        if (cancelled && callbacks.remove(action)) {
+            action.run();
+        }
+
+        return () -> callbacks.remove(action);
+    }
+
+    /**
+     * Время, прошедшее с момента остановки, мс
+     *
+     * @return время или -1, если индексация не остановлена
+     */
+    public long getMillisSinceCancel() {
+        return cancelled ? (System.nanoTime() - cancelledAt) / 1_000_000 : -1;
+    }
+
+    /**
+     * Регистрация действия при остановке
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
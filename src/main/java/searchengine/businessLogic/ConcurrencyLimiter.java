@@ -0,0 +1,82 @@
+package searchengine.businessLogic;
+
+import searchengine.config.IndexingSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение количества одновременных запросов к сайту, подстраивающееся под его отклик
+ * (additive increase / multiplicative decrease): после каждого быстрого успешного ответа
+ * предел плавно растёт, примерно на единицу за каждый «круг» запросов, а после ошибки,
+ * таймаута или слишком медленного ответа уменьшается в несколько раз.
+ */
+public class ConcurrencyLimiter {
+    private static final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final int min;
+    private final int max;
+    private final double decreaseFactor;
+    private final long slowResponseNanos;
+    private double limit;
+    private long lastDecrease;
+    private double averageLatency;
+
+    public ConcurrencyLimiter(IndexingSettings.Concurrency settings) {
+        this.min = Math.max(1, settings.getMin());
+        this.max = Math.max(min, settings.getMax());
+        this.decreaseFactor = settings.getDecreaseFactor();
+        this.slowResponseNanos = TimeUnit.MILLISECONDS.toNanos(settings.getSlowResponse());
+        this.limit = Math.min(max, Math.max(min, settings.getInitial()));
+    }
+
+    /**
+     * Регистрирует ограничение сайта для отображения в статистике
+     *
+     * @param siteUrl адрес сайта
+     * @param limiter ограничение
+     */
+    public static void register(String siteUrl, ConcurrencyLimiter limiter) {
+        limiters.put(siteUrl, limiter);
+    }
+
+    /**
+     * Возвращает текущий предел одновременных запросов к сайту
+     *
+     * @param siteUrl адрес сайта
+     * @return предел или 0, если сайт ещё не обходился
+     */
+    public static int getLimit(String siteUrl) {
+        ConcurrencyLimiter limiter = limiters.get(siteUrl);
+        return limiter == null ? 0 : limiter.getLimit();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Учитывает результат запроса
+     *
+     * @param latencyNanos время от отправки запроса до получения ответа
+     * @param failed       true, если запрос завершился ошибкой, таймаутом или сервер перегружен
+     */
+    public synchronized void onResponse(long latencyNanos, boolean failed) {
+        averageLatency = averageLatency == 0 ? latencyNanos : averageLatency * 0.9 + latencyNanos * 0.1;
+
+        if (!failed && latencyNanos < slowResponseNanos) {
+            limit = Math.min(max, limit + 1 / limit);
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        // ответы на запросы, отправленные до предыдущего уменьшения, не уменьшают предел повторно
+        if (now - lastDecrease < averageLatency) {
+            return;
+        }
+
+        lastDecrease = now;
+        limit = Math.max(min, limit * decreaseFactor);
+    }
+}
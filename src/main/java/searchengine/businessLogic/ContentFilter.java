@@ -0,0 +1,74 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import searchengine.config.IndexingSettings;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Отсеивает содержимое, которое не может попасть в индекс: адреса с расширениями двоичных файлов
+ * отбрасываются до загрузки, ответы с типом содержимого, отличным от HTML, - по заголовкам,
+ * а загрузка слишком больших ответов прерывается.
+ */
+public class ContentFilter {
+    private final Set<String> contentTypes = new HashSet<>();
+    private final Set<String> skippedExtensions = new HashSet<>();
+    @Getter
+    private final long maxBodySize;
+
+    public ContentFilter(IndexingSettings.Filter settings) {
+        this.maxBodySize = settings.getMaxBodySize() > 0 ? settings.getMaxBodySize() : Long.MAX_VALUE;
+
+        for (String type : settings.getContentTypes()) {
+            contentTypes.add(type.trim().toLowerCase(Locale.ROOT));
+        }
+
+        for (String extension : settings.getSkippedExtensions()) {
+            skippedExtensions.add(extension.trim().toLowerCase(Locale.ROOT).replaceFirst("^\\.", ""));
+        }
+    }
+
+    /**
+     * Проверяет по расширению, стоит ли загружать страницу
+     *
+     * @param path путь страницы, возможно с параметрами запроса
+     * @return false, если путь ведёт на двоичный файл
+     */
+    public boolean isAllowedPath(String path) {
+        int end = path.indexOf('?');
+        end = end < 0 ? path.length() : end;
+        int slash = path.lastIndexOf('/', end - 1);
+        int dot = path.lastIndexOf('.', end - 1);
+
+        if (dot <= slash) {
+            return true;
+        }
+
+        return !skippedExtensions.contains(path.substring(dot + 1, end).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Проверяет заголовки ответа
+     *
+     * @param contentType   значение заголовка Content-Type (может быть null)
+     * @param contentLength значение заголовка Content-Length или -1, если его нет
+     * @return причина отказа или null, если тело ответа нужно загрузить
+     */
+    public String check(String contentType, long contentLength) {
+        if (contentType != null && !contentTypes.isEmpty()) {
+            String type = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+
+            if (!type.isEmpty() && !contentTypes.contains(type)) {
+                return "Content type " + type + " is not indexed";
+            }
+        }
+
+        if (contentLength > maxBodySize) {
+            return "Content length " + contentLength + " exceeds " + maxBodySize + " bytes";
+        }
+
+        return null;
+    }
+}
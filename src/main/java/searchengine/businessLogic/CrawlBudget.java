@@ -0,0 +1,44 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import searchengine.config.IndexingSettings;
+
+/**
+ * Ограничения обхода одного сайта. Нулевое значение означает отсутствие ограничения.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CrawlBudget {
+    private final int maxPages;
+    private final int maxDepth;
+    private final long maxBytes;
+
+    /**
+     * Собирает ограничения сайта: значения, не заданные для сайта, берутся из общих настроек
+     *
+     * @param site     сайт из конфигурации
+     * @param defaults общие ограничения
+     * @return ограничения обхода сайта
+     */
+    public static CrawlBudget of(searchengine.config.Site site, IndexingSettings.Budget defaults) {
+        return new CrawlBudget(
+                site.getMaxPages() == null ? defaults.getMaxPages() : site.getMaxPages(),
+                site.getMaxDepth() == null ? defaults.getMaxDepth() : site.getMaxDepth(),
+                site.getMaxBytes() == null ? defaults.getMaxBytes() : site.getMaxBytes());
+    }
+
+    public boolean isDepthAllowed(int depth) {
+        return maxDepth <= 0 || depth <= maxDepth;
+    }
+
+    /**
+     * Проверяет, исчерпан ли бюджет обхода
+     *
+     * @param pages количество обработанных страниц
+     * @param bytes количество загруженных байт
+     */
+    public boolean isExhausted(int pages, long bytes) {
+        return (maxPages > 0 && pages >= maxPages) || (maxBytes > 0 && bytes >= maxBytes);
+    }
+}
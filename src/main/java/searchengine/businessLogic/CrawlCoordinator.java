@@ -0,0 +1,184 @@
+package searchengine.businessLogic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+import searchengine.dao.CrawlJobDao;
+import searchengine.dao.PageDao;
+import searchengine.dao.SiteDao;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Координатор распределённого обхода: заполняет общую очередь главными страницами и адресами из карт сайтов,
+ * возвращает в очередь задания с истёкшей арендой и завершает обход сайта, когда его очередь опустела.
+ */
+public class CrawlCoordinator {
+    private final Logger logger = LoggerFactory.getLogger(CrawlCoordinator.class);
+    private final CrawlJobDao jobDao = new CrawlJobDao();
+    private final PageDao pageDao = new PageDao();
+    private final SiteDao siteDao = new SiteDao();
+    private final CrawlScheduler scheduler;
+    private final IndexingSettings settings;
+    private final ContentFilter filter;
+    private final Set<String> seeding = ConcurrentHashMap.newKeySet();
+
+    public CrawlCoordinator(CrawlScheduler scheduler, IndexingSettings settings) {
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.filter = new ContentFilter(settings.getFilter());
+    }
+
+    /**
+     * Начинает обход сайтов: прежние задания удаляются, очередь заполняется в фоне
+     *
+     * @param sites сайты из конфигурации
+     */
+    public void start(List<searchengine.config.Site> sites) {
+        for (searchengine.config.Site config : sites) {
+            Site site = getSite(config).orElseGet(Site::new);
+            site.setUrl(config.getUrl());
+            site.setName(config.getName());
+            site.setStatus(Status.INDEXING);
+            site.setStatusTime(new Date());
+            site.setLastError(null);
+            siteDao.saveOrUpdate(site);
+            jobDao.deleteBySite(site);
+
+            seeding.add(config.getUrl());
+            scheduler.submit(config.getUrl(), config.getWeight(), () -> seed(site, config));
+        }
+    }
+
+    /**
+     * Останавливает обход сайтов: задания, ещё не захваченные рабочими процессами, удаляются
+     *
+     * @param sites сайты из конфигурации
+     */
+    public void stop(List<searchengine.config.Site> sites) {
+        for (searchengine.config.Site config : sites) {
+            Site site = getSite(config).orElse(null);
+
+            if (site == null || site.getStatus() != Status.INDEXING) {
+                continue;
+            }
+
+            site.setStatus(Status.FAILED);
+            site.setStatusTime(new Date());
+            site.setLastError("Индексация остановлена пользователем");
+            siteDao.saveOrUpdate(site);
+            jobDao.deleteQueued(site);
+        }
+    }
+
+    /**
+     * Возвращает в очередь задания с истёкшей арендой и завершает обход сайтов, у которых не осталось заданий
+     *
+     * @param sites сайты из конфигурации
+     * @return true, если обход хотя бы одного сайта ещё идёт
+     */
+    public boolean check(List<searchengine.config.Site> sites) {
+        int requeued = jobDao.requeueExpired(new Date(), settings.getDistributed().getMaxAttempts());
+
+        if (requeued > 0) {
+            logger.info("Requeued {} crawl jobs with expired leases", requeued);
+        }
+
+        boolean active = !seeding.isEmpty();
+
+        for (searchengine.config.Site config : sites) {
+            Site site = getSite(config).orElse(null);
+
+            if (site == null || site.getStatus() != Status.INDEXING || seeding.contains(config.getUrl())) {
+                continue;
+            }
+
+            int total = jobDao.getCount(site);
+
+            // после заполнения очереди в ней есть хотя бы главная страница, поэтому пустая очередь
+            // означает, что заполнить её не удалось, и ждать завершения обхода бессмысленно
+            if (total == 0) {
+                fail(site, "Не удалось заполнить очередь обхода");
+                continue;
+            }
+
+            if (jobDao.getActiveCount(site) > 0) {
+                active = true;
+                continue;
+            }
+
+            finish(site, config, total);
+        }
+
+        return active;
+    }
+
+    private void seed(Site site, searchengine.config.Site config) {
+        try {
+            String root = SiteParser.getRoot(config.getUrl());
+            SeedDiscovery discovery = SeedDiscovery.discover(root, settings, scheduler.getPoliteness());
+            List<String> seeds = new ArrayList<>();
+
+            for (String path : discovery.getSeeds().keySet()) {
+                if (filter.isAllowedPath(path) && discovery.getRules().isAllowed(path) && !path.equals("/")) {
+                    seeds.add(path);
+                }
+            }
+
+            int maxPages = CrawlBudget.of(config, settings.getBudget()).getMaxPages();
+            if (maxPages > 0 && seeds.size() > maxPages - 1) {
+                seeds = seeds.subList(0, Math.max(0, maxPages - 1));
+            }
+
+            jobDao.enqueue(site, List.of("/"), 0);
+            int added = jobDao.enqueue(site, seeds, 1);
+            logger.info("Queued {} seed pages of {} for distributed crawl", added + 1, config.getUrl());
+        } catch (RuntimeException e) {
+            logger.error("Failed to seed {}: {}", config.getUrl(), e.getMessage());
+            fail(site, "Не удалось заполнить очередь обхода: " + e.getMessage());
+        } finally {
+            seeding.remove(config.getUrl());
+        }
+    }
+
+    private void fail(Site site, String error) {
+        site.setStatus(Status.FAILED);
+        site.setStatusTime(new Date());
+        site.setLastError(error);
+        siteDao.saveOrUpdate(site);
+    }
+
+    /**
+     * Удаляет страницы, не полученные при обходе, и неиспользуемые леммы и отмечает сайт проиндексированным
+     */
+    private void finish(Site site, searchengine.config.Site config, int total) {
+        logger.info("Distributed crawl of {} finished: {} jobs", site.getUrl(), total);
+        PageIndexer indexer = new PageIndexer(site);
+        int maxPages = CrawlBudget.of(config, settings.getBudget()).getMaxPages();
+
+        // при исчерпании бюджета непосещённые страницы не считаются удалёнными с сайта
+        if (maxPages <= 0 || total < maxPages) {
+            for (String path : pageDao.getPathsNotCrawled(site)) {
+                Page page = new Page();
+                page.setPath(path);
+                indexer.delete(page);
+            }
+        }
+
+        indexer.deleteUnusedLemmas();
+        jobDao.deleteBySite(site);
+        site.setStatus(Status.INDEXED);
+        site.setStatusTime(new Date());
+        siteDao.saveOrUpdate(site);
+    }
+
+    private Optional<Site> getSite(searchengine.config.Site config) {
+        Site site = new Site();
+        site.setUrl(config.getUrl());
+        return siteDao.get(site);
+    }
+}
@@ -0,0 +1,256 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал обхода сайта. Записи о найденных, загруженных и сохранённых страницах
+ * дописываются в локальный файл через равные промежутки времени, чтобы прерванный
+ * обход можно было продолжить с того же места.
+ */
+public class CrawlJournal {
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "crawl-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final String QUEUED = "Q";
+    private static final String FETCHED = "F";
+    private static final String SEEN = "S";
+    private static final String PERSISTED = "P";
+    private static final String COUNTERS = "C";
+    private final Logger logger = LoggerFactory.getLogger(CrawlJournal.class);
+    private final Path file;
+    private final StringBuilder buffer = new StringBuilder();
+    private final boolean hasCheckpoint;
+    private BufferedWriter writer;
+    private ScheduledFuture<?> flushTask;
+    private long queued;
+    private long fetched;
+    private long persisted;
+
+    private CrawlJournal(Path file, boolean hasCheckpoint) {
+        this.file = file;
+        this.hasCheckpoint = hasCheckpoint;
+    }
+
+    /**
+     * Открывает журнал сайта для дозаписи
+     *
+     * @param settings настройки журнала
+     * @param siteUrl  адрес сайта
+     * @return журнал; если журналирование выключено - журнал, который ничего не записывает
+     */
+    public static CrawlJournal open(IndexingSettings.Journal settings, String siteUrl) throws IOException {
+        if (!settings.isEnabled()) {
+            return new CrawlJournal(null, false);
+        }
+
+        Path directory = Paths.get(settings.getDirectory());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(siteUrl.replaceAll("[^A-Za-z0-9.-]", "_") + ".journal");
+        boolean hasCheckpoint = Files.exists(file) && Files.size(file) > 0;
+
+        CrawlJournal journal = new CrawlJournal(file, hasCheckpoint);
+        journal.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        journal.flushTask = FLUSHER.scheduleWithFixedDelay(journal::flush,
+                settings.getFlushInterval(), settings.getFlushInterval(), TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    /**
+     * Проверяет, остался ли от прерванного обхода непустой журнал
+     */
+    public boolean hasCheckpoint() {
+        return hasCheckpoint;
+    }
+
+    /**
+     * Читает состояние прерванного обхода
+     *
+     * @return состояние обхода
+     */
+    public Checkpoint read() throws IOException {
+        Checkpoint checkpoint = new Checkpoint();
+        Set<String> finished = new HashSet<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space < 0) {
+                    continue;
+                }
+
+                String type = line.substring(0, space);
+                String value = line.substring(space + 1);
+
+                switch (type) {
+                    case QUEUED -> checkpoint.visited.add(value);
+                    case FETCHED -> finished.add(value);
+                    case SEEN, PERSISTED -> {
+                        finished.add(value);
+                        checkpoint.seen.add(value);
+                    }
+                    case COUNTERS -> checkpoint.counters = value;
+                    default -> {
+                        // недописанная строка
+                    }
+                }
+            }
+        }
+
+        for (String path : checkpoint.visited) {
+            if (!finished.contains(path)) {
+                checkpoint.pending.add(path);
+            }
+        }
+
+        restoreCounters(checkpoint.counters);
+        return checkpoint;
+    }
+
+    /**
+     * Путь добавлен в очередь обхода
+     */
+    public void queued(String path) {
+        append(QUEUED, path);
+    }
+
+    /**
+     * Страница загружена и не требует сохранения
+     *
+     * @param seen true, если страница получена успешно и должна остаться в индексе
+     */
+    public void fetched(String path, boolean seen) {
+        append(seen ? SEEN : FETCHED, path);
+    }
+
+    /**
+     * Страница сохранена в индекс
+     */
+    public void persisted(String path) {
+        append(PERSISTED, path);
+    }
+
+    /**
+     * Записывает накопленные записи и счётчики в файл
+     */
+    public void flush() {
+        if (file == null) {
+            return;
+        }
+
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+
+            try {
+                buffer.append(COUNTERS).append(' ')
+                        .append(queued).append(' ').append(fetched).append(' ').append(persisted).append('\n');
+                writer.write(buffer.toString());
+                writer.flush();
+                buffer.setLength(0);
+            } catch (IOException e) {
+                logger.error("Failed to write crawl journal {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Записывает оставшиеся записи и закрывает журнал, сохраняя его для продолжения обхода
+     */
+    public void close() {
+        if (file == null) {
+            return;
+        }
+
+        flushTask.cancel(false);
+        flush();
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.error("Failed to close crawl journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Закрывает и удаляет журнал после завершения обхода
+     */
+    public void delete() {
+        if (file == null) {
+            return;
+        }
+
+        close();
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("Failed to delete crawl journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void restoreCounters(String counters) {
+        String[] values = counters.split(" ");
+        if (values.length != 3) {
+            return;
+        }
+
+        synchronized (buffer) {
+            try {
+                queued = Long.parseLong(values[0]);
+                fetched = Long.parseLong(values[1]);
+                persisted = Long.parseLong(values[2]);
+            } catch (NumberFormatException e) {
+                logger.warn("Malformed counters in crawl journal {}: {}", file, counters);
+            }
+        }
+    }
+
+    private void append(String type, String path) {
+        if (file == null) {
+            return;
+        }
+
+        synchronized (buffer) {
+            switch (type) {
+                case QUEUED -> queued++;
+                case PERSISTED -> persisted++;
+                default -> fetched++;
+            }
+
+            buffer.append(type).append(' ').append(path).append('\n');
+        }
+    }
+
+    /**
+     * Состояние прерванного обхода
+     */
+    @Getter
+    public static class Checkpoint {
+        private final Set<String> visited = new HashSet<>();
+        private final Set<String> seen = new HashSet<>();
+        private final List<String> pending = new ArrayList<>();
+        private String counters = "0 0 0";
+    }
+}
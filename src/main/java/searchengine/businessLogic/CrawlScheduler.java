@@ -0,0 +1,103 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import searchengine.config.IndexingSettings;
+
+import java.util.concurrent.*;
+
+/**
+ * Общий для всех сайтов планировщик индексации. Загрузка, лемматизация и запись в БД
+ * выполняются в пулах фиксированного размера, которые сайты делят между собой по весу,
+ * а одновременно обходится не больше заданного количества сайтов. Поэтому общее число
+ * потоков не зависит от количества сайтов в конфигурации.
+ */
+public class CrawlScheduler {
+    private static volatile CrawlScheduler instance;
+    @Getter
+    private final PolitenessScheduler politeness;
+    @Getter
+    private final MemoryGovernor memory;
+    private final FairShareExecutor fetch;
+    private final FairShareExecutor cpu;
+    private final FairShareExecutor db;
+    private final ExecutorService sites;
+
+    /**
+     * Возвращает singleton экземпляр класса CrawlScheduler, создавая его при первом обращении
+     * @param settings настройки индексации
+     * @return экземпляр класса CrawlScheduler
+     */
+    public static CrawlScheduler getInstance(IndexingSettings settings) {
+        CrawlScheduler localInstance = instance;
+        if (localInstance == null) {
+            synchronized (CrawlScheduler.class) {
+                localInstance = instance;
+                if (localInstance == null) {
+                    instance = localInstance = new CrawlScheduler(settings);
+                }
+            }
+        }
+        return localInstance;
+    }
+
+    private CrawlScheduler(IndexingSettings settings) {
+        IndexingSettings.Scheduler scheduler = settings.getScheduler();
+        this.politeness = new PolitenessScheduler(settings.getPoliteness());
+        this.memory = MemoryGovernor.getInstance(settings.getMemory());
+        this.fetch = new FairShareExecutor("crawl-fetch", scheduler.getFetchThreads());
+        this.cpu = new FairShareExecutor("crawl-cpu", scheduler.getCpuThreads());
+        this.db = new FairShareExecutor("crawl-db", scheduler.getDbThreads());
+        this.sites = Executors.newFixedThreadPool(scheduler.getSiteThreads(), r -> {
+            Thread thread = new Thread(r, "crawl-site");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ставит обход сайта в очередь
+     *
+     * @param siteUrl адрес сайта
+     * @param weight  доля сайта в общих пулах относительно других сайтов
+     * @param handler обход сайта
+     * @return future, через который обход можно прервать
+     */
+    public Future<?> submit(String siteUrl, int weight, Runnable handler) {
+        fetch.setWeight(siteUrl, weight);
+        cpu.setWeight(siteUrl, weight);
+        db.setWeight(siteUrl, weight);
+        return sites.submit(handler);
+    }
+
+    /**
+     * Исполнитель обработки загруженных страниц сайта
+     */
+    public Executor fetch(String siteUrl) {
+        return fetch.forKey(siteUrl);
+    }
+
+    /**
+     * Исполнитель лемматизации страниц сайта
+     */
+    public Executor cpu(String siteUrl) {
+        return cpu.forKey(siteUrl);
+    }
+
+    /**
+     * Исполнитель записи страниц сайта в БД
+     */
+    public Executor db(String siteUrl) {
+        return db.forKey(siteUrl);
+    }
+
+    /**
+     * Удаляет из общих пулов задачи сайта, которые ещё не начали выполняться
+     *
+     * @param siteUrl адрес сайта
+     */
+    public void purge(String siteUrl) {
+        fetch.purge(siteUrl);
+        cpu.purge(siteUrl);
+        db.purge(siteUrl);
+    }
+}
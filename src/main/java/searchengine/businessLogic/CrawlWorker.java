@@ -0,0 +1,241 @@
+package searchengine.businessLogic;
+
+import org.jsoup.internal.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+import searchengine.dao.CrawlJobDao;
+import searchengine.dao.PageDao;
+import searchengine.model.CrawlJob;
+import searchengine.model.CrawlJobStatus;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рабочий процесс распределённого обхода: захватывает пачку заданий из общей очереди в БД, загружает
+ * страницы с соблюдением ограничений частоты запросов, индексирует новые и изменившиеся страницы
+ * и добавляет найденные ссылки в очередь. Задания завершаются только после сохранения результатов,
+ * поэтому задания упавшего процесса после окончания аренды выполняет другой процесс.
+ */
+public class CrawlWorker {
+    private static final PageFetcher fetcher = PageFetcher.getInstance();
+    private final Logger logger = LoggerFactory.getLogger(CrawlWorker.class);
+    private final CrawlJobDao jobDao = new CrawlJobDao();
+    private final PageDao pageDao = new PageDao();
+    private final String owner;
+    private final CrawlScheduler scheduler;
+    private final IndexingSettings settings;
+    private final Map<String, searchengine.config.Site> sites = new HashMap<>();
+    private final ContentFilter filter;
+    private final RevisitPolicy revisits;
+    private final Map<Integer, SiteContext> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * @param owner     имя рабочего процесса, под которым он арендует задания
+     * @param sites     сайты из конфигурации
+     * @param scheduler планировщик индексации
+     * @param settings  настройки индексации
+     */
+    public CrawlWorker(String owner, List<searchengine.config.Site> sites, CrawlScheduler scheduler,
+                       IndexingSettings settings) {
+        this.owner = owner;
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.filter = new ContentFilter(settings.getFilter());
+        this.revisits = new RevisitPolicy(settings.getRecrawl());
+        sites.forEach(site -> this.sites.put(SiteParser.getRoot(site.getUrl()), site));
+    }
+
+    /**
+     * Захватывает и выполняет одну пачку заданий
+     *
+     * @return количество выполненных заданий; 0, если очередь пуста
+     */
+    public int work() {
+        IndexingSettings.Distributed distributed = settings.getDistributed();
+        Date expires = new Date(System.currentTimeMillis() + distributed.getLease().toMillis());
+        List<CrawlJob> jobs = jobDao.claim(owner, scheduler.getMemory().scale(distributed.getBatchSize()), expires);
+
+        // сведения о сайтах, которых нет в пачке, сбрасываются: их обход мог завершиться, а леммы - удалиться
+        Set<Integer> claimed = new HashSet<>();
+        jobs.forEach(job -> claimed.add(job.getSite().getId()));
+        contexts.keySet().retainAll(claimed);
+
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>();
+
+        for (CrawlJob job : jobs) {
+            SiteContext context = getContext(job.getSite());
+            CompletableFuture<Outcome> future = new CompletableFuture<>();
+            futures.add(future);
+            scheduler.getPoliteness().execute(context.host(), scheduler.fetch(job.getSite().getUrl()),
+                    () -> process(job, context, future));
+        }
+
+        List<Outcome> outcomes = new ArrayList<>();
+        futures.forEach(future -> outcomes.add(future.join()));
+        finish(outcomes);
+        return jobs.size();
+    }
+
+    private void process(CrawlJob job, SiteContext context, CompletableFuture<Outcome> future) {
+        try {
+            Page page = new Page();
+            page.setSite(job.getSite());
+            page.setPath(job.getPath());
+            Page previous = pageDao.get(page).orElse(null);
+
+            fetcher.fetchAsync(SiteParser.getUrl(page),
+                            previous == null ? null : previous.getEtag(),
+                            previous == null ? null : previous.getLastModified(), filter)
+                    .thenApplyAsync(result -> handle(job, context, page, previous, result),
+                            scheduler.fetch(job.getSite().getUrl()))
+                    .whenComplete((outcome, error) -> {
+                        if (error != null) {
+                            logger.error("Failed to process {}{}: {}", context.root(), job.getPath(), error.getMessage());
+                            future.complete(new Outcome(job, CrawlJobStatus.FAILED, null, List.of()));
+                        } else {
+                            future.complete(outcome);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            logger.error("Failed to process {}{}: {}", context.root(), job.getPath(), e.getMessage());
+            future.complete(new Outcome(job, CrawlJobStatus.FAILED, null, List.of()));
+        }
+    }
+
+    private Outcome handle(CrawlJob job, SiteContext context, Page page, Page previous, FetchResult result) {
+        if (!result.isFailed() && SiteParser.isThrottled(result.getStatusCode())) {
+            scheduler.getPoliteness().backoff(context.host(), result.header("Retry-After"), job.getAttempts() - 1);
+            CrawlJobStatus status = job.getAttempts() < settings.getDistributed().getMaxAttempts()
+                    ? CrawlJobStatus.QUEUED
+                    : CrawlJobStatus.FAILED;
+            return new Outcome(job, status, null, List.of());
+        }
+
+        if (previous != null && !result.isFailed() && result.getStatusCode() == 304) {
+            revisits.onFetched(previous, previous, false);
+            pageDao.updateSchedule(previous);
+            return new Outcome(job, CrawlJobStatus.DONE, null, getLinks(context, previous));
+        }
+
+        SiteParser.applyResult(page, result);
+
+        if (page.getCode() >= 400 || StringUtil.isBlank(page.getContent())) {
+            return new Outcome(job, CrawlJobStatus.FAILED, null, List.of());
+        }
+
+        List<String> links = getLinks(context, page);
+
+        if (previous != null && Objects.equals(previous.getContentHash(), page.getContentHash())) {
+            revisits.onFetched(previous, previous, false);
+            pageDao.updateSchedule(previous);
+            return new Outcome(job, CrawlJobStatus.DONE, null, links);
+        }
+
+        revisits.onFetched(page, previous, true);
+        return new Outcome(job, CrawlJobStatus.DONE, context.indexer().lemmatize(page), links);
+    }
+
+    /**
+     * Сохраняет проиндексированные страницы, добавляет найденные ссылки в очередь и завершает задания
+     */
+    private void finish(List<Outcome> outcomes) {
+        Map<Integer, List<IndexedPage>> indexed = new HashMap<>();
+        Map<CrawlJobStatus, List<Integer>> completed = new EnumMap<>(CrawlJobStatus.class);
+        Set<Integer> lost = new HashSet<>();
+
+        for (Outcome outcome : outcomes) {
+            if (outcome.indexed() != null) {
+                indexed.computeIfAbsent(outcome.job().getSite().getId(), id -> new ArrayList<>()).add(outcome.indexed());
+            }
+        }
+
+        for (Map.Entry<Integer, List<IndexedPage>> entry : indexed.entrySet()) {
+            try {
+                contexts.get(entry.getKey()).indexer().persist(entry.getValue());
+            } catch (RuntimeException e) {
+                logger.error("Failed to save {} pages: {}", entry.getValue().size(), e.getMessage());
+                lost.add(entry.getKey());
+            }
+        }
+
+        enqueueLinks(outcomes);
+
+        for (Outcome outcome : outcomes) {
+            CrawlJobStatus status = outcome.indexed() != null && lost.contains(outcome.job().getSite().getId())
+                    ? CrawlJobStatus.FAILED
+                    : outcome.status();
+            completed.computeIfAbsent(status, s -> new ArrayList<>()).add(outcome.job().getId());
+        }
+
+        completed.forEach((status, ids) -> jobDao.complete(ids, owner, status));
+    }
+
+    private void enqueueLinks(List<Outcome> outcomes) {
+        Map<Integer, Integer> remaining = new HashMap<>();
+
+        for (Outcome outcome : outcomes) {
+            CrawlJob job = outcome.job();
+            SiteContext context = contexts.get(job.getSite().getId());
+            int depth = job.getDepth() + 1;
+
+            if (outcome.links().isEmpty() || !context.budget().isDepthAllowed(depth)) {
+                continue;
+            }
+
+            List<String> links = outcome.links();
+
+            if (context.budget().getMaxPages() > 0) {
+                int left = remaining.computeIfAbsent(job.getSite().getId(),
+                        id -> context.budget().getMaxPages() - jobDao.getCount(job.getSite()));
+                links = links.subList(0, Math.max(0, Math.min(left, links.size())));
+                remaining.put(job.getSite().getId(), left - jobDao.enqueue(job.getSite(), links, depth));
+            } else {
+                jobDao.enqueue(job.getSite(), links, depth);
+            }
+        }
+    }
+
+    private List<String> getLinks(SiteContext context, Page page) {
+        String base = SiteParser.getUrl(page);
+        Set<String> paths = new LinkedHashSet<>();
+
+        for (String href : PageDocument.of(page).getLinks()) {
+            String path = context.canonicalizer().canonicalize(base, href);
+
+            if (path != null && filter.isAllowedPath(path) && context.rules().isAllowed(path)) {
+                paths.add(path);
+            }
+        }
+
+        return new ArrayList<>(paths);
+    }
+
+    private SiteContext getContext(Site site) {
+        return contexts.computeIfAbsent(site.getId(), id -> {
+            String root = SiteParser.getRoot(site.getUrl());
+            searchengine.config.Site config = sites.getOrDefault(root, new searchengine.config.Site());
+            RobotsRules rules = SeedDiscovery.robots(root, settings, scheduler.getPoliteness()).getRules();
+
+            return new SiteContext(root, URI.create(root).getHost(),
+                    new UrlCanonicalizer(root, settings.getCanonicalization()), rules, new PageIndexer(site),
+                    CrawlBudget.of(config, settings.getBudget()));
+        });
+    }
+
+    private record SiteContext(String root, String host, UrlCanonicalizer canonicalizer, RobotsRules rules,
+                               PageIndexer indexer, CrawlBudget budget) {
+    }
+
+    private record Outcome(CrawlJob job, CrawlJobStatus status, IndexedPage indexed, List<String> links) {
+    }
+}
@@ -0,0 +1,90 @@
+package searchengine.businessLogic;
+
+import java.util.*;
+
+/**
+ * Отпечатки SimHash проиндексированных страниц одного сайта с поиском почти одинаковых страниц.
+ * Отпечаток делится на {@value #BANDS} части по 16 битов, и для каждой части ведётся своя таблица.
+ * Если отпечатки отличаются не больше чем в {@value #MAX_DISTANCE} битах, хотя бы одна часть
+ * у них совпадает, поэтому сравнивать нужно только отпечатки из тех же ячеек таблиц.
+ */
+public class DuplicateIndex {
+    /**
+     * Наибольшее количество различающихся битов отпечатков почти одинаковых страниц
+     */
+    public static final int MAX_DISTANCE = 3;
+    private static final int BANDS = MAX_DISTANCE + 1;
+    private static final int BAND_BITS = 64 / BANDS;
+    private final List<Map<Integer, List<Fingerprint>>> bands = new ArrayList<>(BANDS);
+
+    public DuplicateIndex() {
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Добавляет отпечаток проиндексированной страницы
+     *
+     * @param pageId идентификатор страницы
+     * @param hash   отпечаток страницы
+     */
+    public synchronized void add(int pageId, long hash) {
+        Fingerprint fingerprint = new Fingerprint(pageId, hash);
+
+        for (int i = 0; i < BANDS; i++) {
+            bands.get(i).computeIfAbsent(band(hash, i), key -> new ArrayList<>(1)).add(fingerprint);
+        }
+    }
+
+    /**
+     * Удаляет отпечаток страницы
+     *
+     * @param pageId идентификатор страницы
+     * @param hash   отпечаток страницы
+     */
+    public synchronized void remove(int pageId, long hash) {
+        for (int i = 0; i < BANDS; i++) {
+            List<Fingerprint> bucket = bands.get(i).get(band(hash, i));
+
+            if (bucket != null) {
+                bucket.removeIf(fingerprint -> fingerprint.pageId() == pageId);
+
+                if (bucket.isEmpty()) {
+                    bands.get(i).remove(band(hash, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Ищет страницу, почти одинаковую с данной
+     *
+     * @param hash отпечаток страницы
+     * @return идентификатор найденной страницы или null
+     */
+    public synchronized Integer find(long hash) {
+        for (int i = 0; i < BANDS; i++) {
+            List<Fingerprint> bucket = bands.get(i).get(band(hash, i));
+
+            if (bucket == null) {
+                continue;
+            }
+
+            for (Fingerprint fingerprint : bucket) {
+                if (SimHash.distance(fingerprint.hash(), hash) <= MAX_DISTANCE) {
+                    return fingerprint.pageId();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static int band(long hash, int i) {
+        return (int) (hash >>> (i * BAND_BITS) & ((1L << BAND_BITS) - 1));
+    }
+
+    private record Fingerprint(int pageId, long hash) {
+    }
+}
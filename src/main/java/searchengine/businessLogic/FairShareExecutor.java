@@ -0,0 +1,143 @@
+package searchengine.businessLogic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пул с фиксированным числом потоков, который выполняет задачи разных сайтов по очереди:
+ * у каждого сайта своя очередь задач, и потоки обходят очереди по кругу, забирая из очереди
+ * подряд не больше задач, чем вес сайта. Поэтому сайт с большим количеством задач не вытесняет остальные.
+ */
+public class FairShareExecutor {
+    private final Logger logger = LoggerFactory.getLogger(FairShareExecutor.class);
+    private final Map<String, SiteQueue> queues = new ConcurrentHashMap<>();
+    private final Queue<SiteQueue> active = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * @param name    имя потоков пула
+     * @param threads количество потоков
+     */
+    public FairShareExecutor(String name, int threads) {
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Возвращает исполнитель, ставящий задачи в очередь сайта
+     *
+     * @param key адрес сайта
+     */
+    public Executor forKey(String key) {
+        return task -> submit(key, task);
+    }
+
+    /**
+     * Задаёт вес сайта: сколько его задач выполняется подряд, прежде чем очередь перейдёт к следующему сайту
+     *
+     * @param key    адрес сайта
+     * @param weight вес сайта
+     */
+    public void setWeight(String key, int weight) {
+        lock.lock();
+        try {
+            SiteQueue queue = getQueue(key);
+            queue.weight = Math.max(1, weight);
+            queue.credits = Math.min(queue.credits, queue.weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет задачи сайта, которые ещё не начали выполняться
+     *
+     * @param key адрес сайта
+     */
+    public void purge(String key) {
+        lock.lock();
+        try {
+            SiteQueue queue = getQueue(key);
+            queue.tasks.clear();
+            active.remove(queue);
+            queue.active = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submit(String key, Runnable task) {
+        lock.lock();
+        try {
+            SiteQueue queue = getQueue(key);
+            queue.tasks.add(task);
+
+            if (!queue.active) {
+                queue.active = true;
+                queue.credits = queue.weight;
+                active.add(queue);
+            }
+
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SiteQueue getQueue(String key) {
+        return queues.computeIfAbsent(key, k -> new SiteQueue());
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+
+            lock.lock();
+            try {
+                while (active.isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+
+                SiteQueue queue = active.peek();
+                task = queue.tasks.poll();
+                queue.credits--;
+
+                if (queue.tasks.isEmpty()) {
+                    active.poll();
+                    queue.active = false;
+                } else if (queue.credits <= 0) {
+                    active.add(active.poll());
+                    queue.credits = queue.weight;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // поток пула не должен завершаться из-за ошибки задачи, иначе пул уменьшится навсегда
+                logger.error("Task failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class SiteQueue {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private int weight = 1;
+        private int credits;
+        private boolean active;
+    }
+}
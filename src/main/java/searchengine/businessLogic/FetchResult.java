@@ -0,0 +1,42 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.net.http.HttpHeaders;
+
+/**
+ * Результат загрузки страницы
+ */
+@Getter
+@Setter
+public class FetchResult {
+    private String url;
+    private int statusCode;
+    private HttpHeaders headers;
+    private byte[] body;
+    private String charset;
+    private String error;
+    /**
+     * Причина, по которой тело ответа не загружено или отброшено фильтром содержимого
+     */
+    private String skipReason;
+
+    /**
+     * Возвращает первое значение заголовка ответа
+     *
+     * @param name имя заголовка
+     * @return значение заголовка или null, если его нет
+     */
+    public String header(String name) {
+        return headers == null ? null : headers.firstValue(name).orElse(null);
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+}
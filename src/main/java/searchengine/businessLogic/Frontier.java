@@ -0,0 +1,212 @@
+package searchengine.businessLogic;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Очередь страниц сайта, ожидающих обхода, и множество уже найденных путей.
+ * Первыми извлекаются пути с наибольшим приоритетом: чем ближе страница к корню сайта,
+ * чем больше на неё ссылок и чем выше её приоритет в карте сайта, тем раньше она будет загружена.
+ * Уже проиндексированные пути проверяются точно, а новые хранятся в фильтре Блума, поэтому с малой вероятностью
+ * новый путь может быть принят за уже найденный, но известная страница никогда не пропускается
+ * и не считается удалённой с сайта. Фильтр растёт вместе с количеством найденных путей: когда он заполнен,
+ * добавляется следующий вдвое большего размера с вдвое меньшей вероятностью ошибки, так что суммарная
+ * вероятность ошибки не превышает заданную.
+ */
+public class Frontier {
+    private static final double DEFAULT_PRIORITY = 0.5;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<String, State> queued = new HashMap<>();
+    private static final long MIN_CAPACITY = 65_536;
+    private final List<BloomFilter> visited = new ArrayList<>();
+    private final KnownPages known;
+    private final double falsePositiveRate;
+    private long capacity;
+    private long stageCount;
+    private final AtomicLong visitedCount = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private long sequence;
+
+    /**
+     * @param expectedUrls      ожидаемое количество новых путей сайта, под которое сразу выделяется фильтр
+     * @param falsePositiveRate допустимая доля путей, ошибочно принятых за уже найденные
+     * @param known             уже проиндексированные страницы сайта
+     */
+    public Frontier(long expectedUrls, double falsePositiveRate, KnownPages known) {
+        this.known = known;
+        this.falsePositiveRate = falsePositiveRate;
+        this.capacity = Math.max(MIN_CAPACITY, expectedUrls);
+        this.visited.add(new BloomFilter(capacity, falsePositiveRate / 2));
+    }
+
+    /**
+     * Добавляет путь в очередь, если он ещё не встречался. Если путь уже ждёт в очереди,
+     * учитывает ещё одну ссылку на него.
+     *
+     * @param path     путь страницы, приведённый к единому виду
+     * @param depth    количество переходов от корня сайта
+     * @param priority приоритет страницы из карты сайта от 0 до 1 (может быть null)
+     * @return true, если путь добавлен в очередь
+     */
+    public synchronized boolean add(String path, int depth, Double priority) {
+        State state = queued.get(path);
+
+        if (state != null) {
+            state.inlinks++;
+            state.depth = Math.min(state.depth, depth);
+
+            // переставляем путь в очереди не на каждую ссылку, а когда число ссылок удваивается;
+            // прежняя запись в очереди устаревает и пропускается при извлечении
+            if (Integer.bitCount(state.inlinks) == 1) {
+                offer(path, state);
+            }
+
+            return false;
+        }
+
+        if (!markVisited(path)) {
+            return false;
+        }
+
+        state = new State(depth, priority == null ? DEFAULT_PRIORITY : priority);
+        queued.put(path, state);
+        visitedCount.incrementAndGet();
+        pending.incrementAndGet();
+        offer(path, state);
+        return true;
+    }
+
+    /**
+     * Восстанавливает состояние прерванного обхода. Глубина восстановленных путей неизвестна и считается нулевой.
+     *
+     * @param visited все пути, найденные до прерывания
+     * @param pending пути, обработка которых не была завершена
+     */
+    public synchronized void restore(Collection<String> visited, Collection<String> pending) {
+        visited.forEach(this::markVisited);
+        visitedCount.addAndGet(visited.size());
+        this.pending.addAndGet(pending.size());
+
+        for (String path : pending) {
+            State state = new State(0, DEFAULT_PRIORITY);
+            queued.put(path, state);
+            offer(path, state);
+        }
+    }
+
+    /**
+     * Извлекает путь с наибольшим приоритетом
+     *
+     * @return путь вместе с глубиной или null, если очередь пуста
+     */
+    public synchronized Entry poll() {
+        Entry entry;
+
+        while ((entry = queue.poll()) != null) {
+            State state = queued.get(entry.path());
+
+            if (state != null && state.version == entry.version()) {
+                queued.remove(entry.path());
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Отмечает обработку одного пути завершённой
+     *
+     * @return количество путей, которые ещё ожидают обработки или обрабатываются
+     */
+    public int complete() {
+        return pending.decrementAndGet();
+    }
+
+    /**
+     * Отбрасывает все пути, ожидающие в очереди, например, когда исчерпан бюджет обхода
+     *
+     * @return количество путей, которые ещё обрабатываются
+     */
+    public synchronized int drain() {
+        int dropped = queued.size();
+        queue.clear();
+        queued.clear();
+        return pending.addAndGet(-dropped);
+    }
+
+    public synchronized boolean isEmpty() {
+        return queued.isEmpty();
+    }
+
+    public long getVisitedCount() {
+        return visitedCount.get();
+    }
+
+    public synchronized long getVisitedSizeInBytes() {
+        return visited.stream().mapToLong(BloomFilter::getSizeInBytes).sum();
+    }
+
+    /**
+     * Отмечает путь найденным
+     *
+     * @return true, если путь ещё не встречался
+     */
+    private boolean markVisited(String path) {
+        int index = known.indexOf(path);
+
+        if (index >= 0) {
+            return known.markDiscovered(index);
+        }
+
+        int last = visited.size() - 1;
+
+        for (int i = 0; i < last; i++) {
+            if (visited.get(i).mightContain(path)) {
+                return false;
+            }
+        }
+
+        if (!visited.get(last).put(path)) {
+            return false;
+        }
+
+        if (++stageCount >= capacity) {
+            capacity *= 2;
+            stageCount = 0;
+            visited.add(new BloomFilter(capacity, falsePositiveRate / (2L << visited.size())));
+        }
+
+        return true;
+    }
+
+    private void offer(String path, State state) {
+        state.version++;
+        double score = 2 * state.priority + Math.log(1 + state.inlinks) / Math.log(2) - state.depth;
+        queue.offer(new Entry(path, state.depth, score, state.version, sequence++));
+    }
+
+    private static class State {
+        private final double priority;
+        private int depth;
+        private int inlinks = 1;
+        private int version;
+
+        private State(int depth, double priority) {
+            this.depth = depth;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Путь из очереди вместе с количеством переходов от корня сайта
+     */
+    public record Entry(String path, int depth, double score, int version, long sequence) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(other.score, score);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package searchengine.businessLogic;
+
+import org.jsoup.parser.Parser;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Однопроходный разбор HTML без построения DOM: извлекает заголовок, видимый текст и ссылки,
+ * пропуская комментарии, скрипты и стили. Если разметка повреждена настолько, что её нельзя
+ * разобрать без DOM (незакрытые комментарий, скрипт или тег), возвращает null.
+ */
+public class HtmlScanner {
+    private static final Pattern META_CHARSET = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?([\\w.:-]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final int CHARSET_SNIFF_LENGTH = 1024;
+    private static final Set<String> SKIPPED = Set.of("script", "style", "template");
+    private static final Set<String> INLINE = Set.of("a", "abbr", "b", "bdi", "bdo", "cite", "code", "data", "dfn",
+            "em", "font", "i", "kbd", "mark", "q", "s", "samp", "small", "span", "strong", "sub", "sup", "time", "u",
+            "var", "wbr");
+
+    private final String html;
+    private final StringBuilder text;
+    private final Set<String> links = new LinkedHashSet<>();
+    private String title;
+
+    private HtmlScanner(String html) {
+        this.html = html;
+        this.text = new StringBuilder(Math.min(html.length() / 2, 1 << 16));
+    }
+
+    /**
+     * Разбирает HTML страницы
+     *
+     * @param html HTML страницы
+     * @return заголовок, текст и ссылки или null, если страницу нужно разбирать через DOM
+     */
+    public static PageDocument scan(String html) {
+        HtmlScanner scanner = new HtmlScanner(html);
+        return scanner.run() ? scanner.toDocument() : null;
+    }
+
+    /**
+     * Определяет кодировку страницы по BOM, заголовку Content-Type или тегу meta в начале страницы
+     *
+     * @param body     тело ответа
+     * @param declared кодировка из заголовка Content-Type (может быть null)
+     * @return кодировка страницы, по умолчанию UTF-8
+     */
+    public static Charset detectCharset(byte[] body, String declared) {
+        if (body.length >= 3 && (body[0] & 0xff) == 0xef && (body[1] & 0xff) == 0xbb && (body[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+
+        if (body.length >= 2 && (body[0] & 0xff) == 0xfe && (body[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16BE;
+        }
+
+        if (body.length >= 2 && (body[0] & 0xff) == 0xff && (body[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16LE;
+        }
+
+        Charset charset = forName(declared);
+        if (charset != null) {
+            return charset;
+        }
+
+        String head = new String(body, 0, Math.min(body.length, CHARSET_SNIFF_LENGTH), StandardCharsets.ISO_8859_1);
+        Matcher matcher = META_CHARSET.matcher(head);
+        charset = matcher.find() ? forName(matcher.group(1)) : null;
+        return charset == null ? StandardCharsets.UTF_8 : charset;
+    }
+
+    private static Charset forName(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Charset.forName(name.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean run() {
+        int length = html.length();
+        int i = 0;
+
+        while (i < length) {
+            if (html.charAt(i) != '<') {
+                int end = html.indexOf('<', i);
+                end = end < 0 ? length : end;
+                appendText(i, end);
+                i = end;
+                continue;
+            }
+
+            if (html.startsWith("<!--", i)) {
+                int end = html.indexOf("-->", i + 4);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 3;
+                continue;
+            }
+
+            if (i + 1 < length && (html.charAt(i + 1) == '!' || html.charAt(i + 1) == '?')) {
+                int end = html.indexOf('>', i);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 1;
+                continue;
+            }
+
+            boolean closing = i + 1 < length && html.charAt(i + 1) == '/';
+            int nameStart = closing ? i + 2 : i + 1;
+            int nameEnd = nameStart;
+
+            while (nameEnd < length && isNameChar(html.charAt(nameEnd))) {
+                nameEnd++;
+            }
+
+            if (nameEnd == nameStart || !Character.isLetter(html.charAt(nameStart))) {
+                // одиночный '<' в тексте
+                appendText(i, i + 1);
+                i++;
+                continue;
+            }
+
+            int end = findTagEnd(nameEnd);
+            if (end < 0) {
+                return false;
+            }
+
+            String name = html.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+
+            if (!INLINE.contains(name)) {
+                separate();
+            }
+
+            if (!closing && name.equals("a")) {
+                addLink(getAttribute(nameEnd, end, "href"));
+            }
+
+            i = end + 1;
+
+            if (closing) {
+                continue;
+            }
+
+            if (SKIPPED.contains(name) || name.equals("title")) {
+                int close = indexOfIgnoreCase("</" + name, i);
+                if (close < 0) {
+                    return false;
+                }
+
+                if (name.equals("title")) {
+                    appendTitle(i, close);
+                }
+
+                i = close;
+            }
+        }
+
+        return true;
+    }
+
+    private PageDocument toDocument() {
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) == ' ') {
+            text.setLength(length - 1);
+        }
+
+        return new PageDocument(title == null ? "" : title, text.toString(), List.copyOf(links));
+    }
+
+    private void appendTitle(int start, int end) {
+        int from = text.length();
+        appendText(start, end);
+
+        if (title == null) {
+            title = text.substring(from).trim();
+        }
+
+        separate();
+    }
+
+    private void appendText(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (html.charAt(i) == '&') {
+                appendNormalized(Parser.unescapeEntities(html.substring(start, end), false));
+                return;
+            }
+        }
+
+        appendNormalized(html, start, end);
+    }
+
+    private void appendNormalized(CharSequence value) {
+        appendNormalized(value, 0, value.length());
+    }
+
+    private void appendNormalized(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+
+            if (Character.isWhitespace(c) || c == '\u00a0') {
+                separate();
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    private void separate() {
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) != ' ') {
+            text.append(' ');
+        }
+    }
+
+    private void addLink(String href) {
+        if (href == null) {
+            return;
+        }
+
+        String value = href.replaceAll("[\\r\\n\\t]", "").trim();
+        if (!value.isEmpty()) {
+            links.add(value);
+        }
+    }
+
+    private int findTagEnd(int from) {
+        char quote = 0;
+
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private String getAttribute(int from, int to, String name) {
+        int i = from;
+
+        while (i < to) {
+            char c = html.charAt(i);
+
+            if (Character.isWhitespace(c) || c == '/') {
+                i++;
+                continue;
+            }
+
+            int nameStart = i;
+            while (i < to && !Character.isWhitespace(html.charAt(i)) && html.charAt(i) != '='
+                    && html.charAt(i) != '/') {
+                i++;
+            }
+            int nameEnd = i;
+
+            while (i < to && Character.isWhitespace(html.charAt(i))) {
+                i++;
+            }
+
+            String value = null;
+            if (i < to && html.charAt(i) == '=') {
+                i++;
+                while (i < to && Character.isWhitespace(html.charAt(i))) {
+                    i++;
+                }
+
+                int valueStart;
+                int valueEnd;
+                if (i < to && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+                    char quote = html.charAt(i);
+                    valueStart = i + 1;
+                    valueEnd = html.indexOf(quote, valueStart);
+                    valueEnd = valueEnd < 0 || valueEnd > to ? to : valueEnd;
+                    i = valueEnd + 1;
+                } else {
+                    valueStart = i;
+                    while (i < to && !Character.isWhitespace(html.charAt(i))) {
+                        i++;
+                    }
+                    valueEnd = i;
+                }
+
+                value = html.substring(valueStart, valueEnd);
+            }
+
+            if (nameEnd - nameStart == name.length() && html.regionMatches(true, nameStart, name, 0, name.length())) {
+                return value == null ? null : Parser.unescapeEntities(value, true);
+            }
+        }
+
+        return null;
+    }
+
+    private int indexOfIgnoreCase(String value, int from) {
+        for (int i = from; i <= html.length() - value.length(); i++) {
+            if (html.charAt(i) == '<' && html.regionMatches(true, i, value, 0, value.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_';
+    }
+}
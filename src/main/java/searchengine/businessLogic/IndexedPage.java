@@ -0,0 +1,15 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import searchengine.model.Page;
+
+/**
+ * Страница вместе с найденными на ней леммами, готовая к сохранению
+ */
+@Getter
+@RequiredArgsConstructor
+public class IndexedPage {
+    private final Page page;
+    private final LemmaCounts lemmas;
+}
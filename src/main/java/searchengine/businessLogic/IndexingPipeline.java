@@ -0,0 +1,292 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+import searchengine.model.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Конвейер индексации сайта: загруженные страницы лемматизируются и сохраняются в БД
+ * по мере обхода в общих пулах планировщика. Количество страниц, принятых, но ещё не сохранённых,
+ * ограничено: место в конвейере резервируется до загрузки страницы, и если его нет, обход сайта
+ * приостанавливается до сохранения очередной пачки, не занимая потоки общих пулов.
+ * При нехватке памяти очередь и пачки уменьшаются, чтобы страницы раньше сохранялись и освобождали память:
+ * неполная пачка отправляется на запись, как только не остаётся страниц на лемматизации.
+ * При остановке индексации ожидающие страницы отбрасываются, а уже начатая запись пачки
+ * доводится до конца или, если не успевает за отведённое время, прерывается с откатом транзакции.
+ */
+public class IndexingPipeline {
+    private final Logger logger = LoggerFactory.getLogger(IndexingPipeline.class);
+    @Getter
+    private final PageIndexer indexer;
+    private final CrawlJournal journal;
+    private final IndexingSettings.Pipeline settings;
+    private final Executor cpu;
+    private final Executor db;
+    private final MemoryGovernor memory;
+    private final Semaphore capacity;
+    private final List<IndexedPage> batch = new ArrayList<>();
+    private int lemmatizing;
+    private int persisting;
+    private int failedPages;
+    /**
+     * Причина последней неудачной записи пачки
+     */
+    @Getter
+    private volatile String error;
+    private volatile boolean cancelled;
+    private volatile Runnable onCapacity = () -> {
+    };
+
+    public IndexingPipeline(PageIndexer indexer, CrawlScheduler scheduler, IndexingSettings.Pipeline settings,
+                            CrawlJournal journal, CancellationToken token) {
+        this.indexer = indexer;
+        this.journal = journal;
+        this.settings = settings;
+        this.cpu = scheduler.cpu(indexer.getSite().getUrl());
+        this.db = scheduler.db(indexer.getSite().getUrl());
+        this.memory = scheduler.getMemory();
+        this.capacity = new Semaphore(settings.getQueueCapacity());
+        token.onCancel(this::cancel);
+    }
+
+    /**
+     * Задаёт действие, выполняемое, когда в конвейере освобождается место
+     */
+    public void setOnCapacity(Runnable onCapacity) {
+        this.onCapacity = onCapacity;
+    }
+
+    /**
+     * Резервирует место для одной страницы, не блокируя вызывающий поток
+     *
+     * @return true, если место зарезервировано; его нужно передать в {@link #accept} или освободить {@link #release}
+     */
+    public boolean tryReserve() {
+        if (cancelled) {
+            return false;
+        }
+
+        if (memory.getLevel() == MemoryGovernor.Level.NORMAL) {
+            return capacity.tryAcquire();
+        }
+
+        int queueCapacity = settings.getQueueCapacity();
+        List<IndexedPage> pending;
+        boolean full;
+
+        synchronized (batch) {
+            // страницы в пачке уже лемматизированы и ждут только записи, поэтому не останавливают обход
+            full = queueCapacity - capacity.availablePermits() - batch.size() >= memory.scale(queueCapacity);
+            pending = lemmatizing == 0 ? takeBatch() : null;
+        }
+
+        if (pending != null) {
+            db.execute(() -> persist(pending));
+        }
+
+        return !full && capacity.tryAcquire();
+    }
+
+    /**
+     * Освобождает зарезервированное место, если страница не будет передана на индексацию
+     */
+    public void release() {
+        release(1);
+    }
+
+    /**
+     * Передаёт загруженную страницу на индексацию, занимая зарезервированное для неё место
+     *
+     * @param page загруженная страница
+     */
+    public void accept(Page page) {
+        if (cancelled) {
+            release();
+            return;
+        }
+
+        synchronized (batch) {
+            lemmatizing++;
+        }
+
+        cpu.execute(() -> lemmatize(page));
+    }
+
+    /**
+     * Дожидается, пока все переданные страницы будут сохранены
+     */
+    public void finish() throws InterruptedException {
+        List<IndexedPage> rest;
+
+        synchronized (batch) {
+            while (lemmatizing > 0) {
+                batch.wait();
+            }
+
+            rest = takeBatch();
+        }
+
+        if (rest != null) {
+            db.execute(() -> persist(rest));
+        }
+
+        capacity.acquire(settings.getQueueCapacity());
+        capacity.release(settings.getQueueCapacity());
+        indexer.deleteUnusedLemmas();
+    }
+
+    /**
+     * Останавливает конвейер, отбрасывая страницы, которые ещё не были сохранены
+     */
+    public void cancel() {
+        cancelled = true;
+
+        synchronized (batch) {
+            batch.notifyAll();
+        }
+    }
+
+    /**
+     * Прерывает запись пачек, не завершившуюся после остановки: транзакции откатываются,
+     * и в БД остаются прежние версии страниц
+     */
+    public void abort() {
+        indexer.abort();
+    }
+
+    /**
+     * Количество страниц, которые не удалось сохранить
+     */
+    public int getFailedPages() {
+        synchronized (batch) {
+            return failedPages;
+        }
+    }
+
+    /**
+     * Дожидается окончания записи пачек, начатой до остановки
+     *
+     * @param timeout наибольшее время ожидания, мс
+     * @return true, если запись завершена
+     */
+    public boolean awaitPersisted(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (batch) {
+            while (persisting > 0) {
+                long left = deadline - System.currentTimeMillis();
+
+                if (left <= 0) {
+                    return false;
+                }
+
+                batch.wait(left);
+            }
+        }
+
+        return true;
+    }
+
+    private void lemmatize(Page page) {
+        IndexedPage indexedPage = null;
+
+        try {
+            if (!cancelled) {
+                indexedPage = indexer.lemmatize(page);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to lemmatize {}: {}", page.getPath(), e.getMessage());
+        }
+
+        List<IndexedPage> full = null;
+
+        synchronized (batch) {
+            lemmatizing--;
+
+            if (indexedPage != null) {
+                batch.add(indexedPage);
+            }
+
+            // при нехватке памяти последняя лемматизированная страница не ждёт, пока наберётся пачка:
+            // иначе обход, остановленный из-за заполненной очереди, не возобновился бы
+            if (batch.size() >= memory.scale(Math.min(settings.getBatchSize(), settings.getQueueCapacity()))
+                    || lemmatizing == 0 && memory.getLevel() != MemoryGovernor.Level.NORMAL) {
+                full = takeBatch();
+            }
+
+            batch.notifyAll();
+        }
+
+        if (indexedPage == null) {
+            release();
+        }
+
+        if (full != null) {
+            List<IndexedPage> pages = full;
+            db.execute(() -> persist(pages));
+        }
+    }
+
+    private void persist(List<IndexedPage> pages) {
+        boolean skipped;
+
+        synchronized (batch) {
+            skipped = cancelled;
+
+            if (!skipped) {
+                persisting++;
+            }
+        }
+
+        if (skipped) {
+            release(pages.size());
+            return;
+        }
+
+        try {
+            indexer.persist(pages);
+            pages.forEach(indexedPage -> journal.persisted(indexedPage.getPage().getPath()));
+        } catch (RuntimeException e) {
+            logger.error("Failed to save {} pages: {}", pages.size(), e.getMessage());
+            error = e.getMessage();
+
+            synchronized (batch) {
+                failedPages += pages.size();
+            }
+        } finally {
+            synchronized (batch) {
+                persisting--;
+                batch.notifyAll();
+            }
+
+            release(pages.size());
+        }
+    }
+
+    /**
+     * Забирает накопленную пачку; вызывается под блокировкой batch
+     *
+     * @return страницы пачки или null, если пачка пуста
+     */
+    private List<IndexedPage> takeBatch() {
+        if (batch.isEmpty()) {
+            return null;
+        }
+
+        List<IndexedPage> pages = new ArrayList<>(batch);
+        batch.clear();
+        return pages;
+    }
+
+    private void release(int pages) {
+        capacity.release(pages);
+        onCapacity.run();
+    }
+}
@@ -0,0 +1,251 @@
+package searchengine.businessLogic;
+
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Уже проиндексированные страницы сайта с заголовками для условных запросов в компактном виде.
+ * Каждой странице присваивается номер; пути хранятся подряд в одном массиве байтов, хеши содержимого -
+ * в двоичном виде, остальные поля - в массивах примитивов, а отметки о посещении - битами.
+ * Объект Page создаётся только при обращении к странице.
+ */
+public class KnownPages {
+    private static final int HASH_LENGTH = 32;
+    private static final KnownPages EMPTY = new KnownPages(null, List.of());
+    private final Site site;
+    private final int size;
+    private final byte[] paths;
+    private final int[] offsets;
+    private final int[] ids;
+    private final String[] etags;
+    private final String[] lastModified;
+    private final byte[] contentHashes;
+    private final long[] lastChanged;
+    private final long[] revisitIntervals;
+    private final int[] table;
+    private final AtomicLongArray seen;
+    private final AtomicLongArray discovered;
+    /**
+     * Страницы, заголовки и хеш содержимого которых сброшены в БД во время обхода
+     */
+    private final AtomicLongArray released;
+
+    /**
+     * @param site сайт
+     * @param rows строки из идентификатора, пути, ETag, Last-Modified, хеша содержимого, времени последнего изменения
+     *             и интервала повторной загрузки страницы
+     */
+    public KnownPages(Site site, List<Object[]> rows) {
+        this.site = site;
+        this.size = rows.size();
+        this.offsets = new int[size + 1];
+        this.ids = new int[size];
+        this.etags = new String[size];
+        this.lastModified = new String[size];
+        this.contentHashes = new byte[size * HASH_LENGTH];
+        this.lastChanged = new long[size];
+        this.revisitIntervals = new long[size];
+        this.table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1)];
+        this.seen = new AtomicLongArray((size + 63) / 64);
+        this.discovered = new AtomicLongArray((size + 63) / 64);
+        this.released = new AtomicLongArray((size + 63) / 64);
+
+        byte[][] encoded = new byte[size][];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            encoded[i] = ((String) rows.get(i)[1]).getBytes(StandardCharsets.UTF_8);
+            length += encoded[i].length;
+        }
+
+        this.paths = new byte[length];
+
+        for (int i = 0; i < size; i++) {
+            Object[] row = rows.get(i);
+            System.arraycopy(encoded[i], 0, paths, offsets[i], encoded[i].length);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+            encoded[i] = null;
+
+            ids[i] = (Integer) row[0];
+            etags[i] = (String) row[2];
+            lastModified[i] = (String) row[3];
+            setContentHash(i, (String) row[4]);
+            lastChanged[i] = row[5] == null ? 0 : ((Date) row[5]).getTime();
+            revisitIntervals[i] = row[6] == null ? 0 : (Long) row[6];
+
+            int slot = hash(paths, offsets[i], offsets[i + 1]) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    public static KnownPages empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает номер страницы
+     *
+     * @param path путь страницы
+     * @return номер страницы или -1, если страница не проиндексирована
+     */
+    public int indexOf(String path) {
+        if (size == 0) {
+            return -1;
+        }
+
+        byte[] key = path.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(key, 0, key.length) & (table.length - 1);
+
+        while (table[slot] != 0) {
+            int index = table[slot] - 1;
+
+            if (Arrays.equals(paths, offsets[index], offsets[index + 1], key, 0, key.length)) {
+                return index;
+            }
+
+            slot = (slot + 1) & (table.length - 1);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Возвращает страницу без содержимого
+     *
+     * @param path путь страницы
+     * @return страница или null, если она не проиндексирована
+     */
+    public Page get(String path) {
+        int index = indexOf(path);
+        return index < 0 ? null : get(index);
+    }
+
+    /**
+     * Отмечает страницу как полученную при текущем обходе
+     *
+     * @param path путь страницы
+     */
+    public void markSeen(String path) {
+        int index = indexOf(path);
+
+        if (index >= 0) {
+            set(seen, index);
+        }
+    }
+
+    /**
+     * Отмечает страницу как найденную при текущем обходе. В отличие от фильтра Блума,
+     * проверка точная, поэтому известная страница не может быть ошибочно пропущена.
+     *
+     * @param index номер страницы
+     * @return true, если страница найдена впервые
+     */
+    public boolean markDiscovered(int index) {
+        return set(discovered, index);
+    }
+
+    /**
+     * Забывает заголовки для условных запросов и хеш содержимого страниц, например копий, отвязанных
+     * от удалённой страницы: такие страницы будут загружены и проиндексированы заново
+     *
+     * @param pageIds идентификаторы страниц
+     */
+    public void release(Collection<Integer> pageIds) {
+        Set<Integer> remaining = new HashSet<>(pageIds);
+
+        for (int i = 0; i < size && !remaining.isEmpty(); i++) {
+            if (remaining.remove(ids[i])) {
+                set(released, i);
+            }
+        }
+    }
+
+    /**
+     * Возвращает страницы, которые не были получены при текущем обходе
+     */
+    public List<Page> getUnseen() {
+        List<Page> pages = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            if ((seen.get(i >>> 6) & 1L << (i & 63)) == 0) {
+                pages.add(get(i));
+            }
+        }
+
+        return pages;
+    }
+
+    private static boolean set(AtomicLongArray bits, int index) {
+        long bit = 1L << (index & 63);
+        long word;
+
+        do {
+            word = bits.get(index >>> 6);
+
+            if ((word & bit) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(index >>> 6, word, word | bit));
+
+        return true;
+    }
+
+    private Page get(int index) {
+        Page page = new Page();
+        page.setId(ids[index]);
+        page.setSite(site);
+        page.setPath(new String(paths, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8));
+
+        if ((released.get(index >>> 6) & 1L << (index & 63)) == 0) {
+            page.setEtag(etags[index]);
+            page.setLastModified(lastModified[index]);
+            page.setContentHash(getContentHash(index));
+        }
+
+        page.setLastChanged(lastChanged[index] == 0 ? null : new Date(lastChanged[index]));
+        page.setRevisitInterval(revisitIntervals[index]);
+        return page;
+    }
+
+    private void setContentHash(int index, String hash) {
+        if (hash != null && hash.length() == HASH_LENGTH * 2) {
+            try {
+                System.arraycopy(HexFormat.of().parseHex(hash), 0, contentHashes, index * HASH_LENGTH, HASH_LENGTH);
+            } catch (IllegalArgumentException ignored) {
+                // некорректный хеш считается отсутствующим, и страница будет проиндексирована заново
+            }
+        }
+    }
+
+    private String getContentHash(int index) {
+        int from = index * HASH_LENGTH;
+
+        for (int i = from; i < from + HASH_LENGTH; i++) {
+            if (contentHashes[i] != 0) {
+                return HexFormat.of().formatHex(contentHashes, from, from + HASH_LENGTH);
+            }
+        }
+
+        return null;
+    }
+
+    private static int hash(byte[] data, int from, int to) {
+        int hash = 1;
+
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + data[i];
+        }
+
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.businessLogic;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Количество упоминаний лемм в тексте. Хранится в хеш-таблице с открытой адресацией в массивах строк и int,
+ * поэтому увеличение счётчика не создаёт объектов Integer. Не потокобезопасен.
+ */
+public class LemmaCounts {
+    private static final int INITIAL_CAPACITY = 64;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Увеличивает количество упоминаний леммы
+     *
+     * @param lemma лемма
+     * @param count на сколько увеличить
+     */
+    public void add(String lemma, int count) {
+        int mask = keys.length - 1;
+        int slot = spread(lemma.hashCode()) & mask;
+
+        while (keys[slot] != null) {
+            if (keys[slot].equals(lemma)) {
+                counts[slot] += count;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = lemma;
+        counts[slot] = count;
+
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Возвращает количество упоминаний леммы
+     *
+     * @param lemma лемма
+     * @return количество или 0, если лемма не встречалась
+     */
+    public int get(String lemma) {
+        int mask = keys.length - 1;
+        int slot = spread(lemma.hashCode()) & mask;
+
+        while (keys[slot] != null) {
+            if (keys[slot].equals(lemma)) {
+                return counts[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Передаёт действию каждую лемму и количество её упоминаний
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new String[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+
+            int slot = spread(oldKeys[i].hashCode()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ hash >>> 16;
+    }
+}
@@ -5,14 +5,25 @@ import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Находит леммы русских и английских слов. Словари LuceneMorphology после загрузки только читаются,
+ * а все промежуточные данные создаются на время вызова, поэтому один экземпляр используется
+ * всеми потоками индексации и поиска одновременно без блокировок.
+ * Частота слов в текстах неравномерна, поэтому результат разбора слова запоминается в кеше.
+ */
 public class LemmaFinder {
     private static volatile LemmaFinder instance;
     private final LuceneMorphology englishMorphology;
     private final LuceneMorphology russianMorphology;
+    private static final int CACHE_SIZE = 200_000;
+    private static final int MIN_WORD_LENGTH = 3;
+    /**
+     * Значение в кеше для служебных слов и слов, нормальная форма которых короче трёх букв
+     */
+    private static final String SKIPPED = "";
+    private final WordCache cache = new WordCache(CACHE_SIZE);
     private static final String[] PARTICLES_NAMES = new String[]{
             "МЕЖД", "СОЮЗ", "ПРЕДЛ", "ЧАСТ", "PART", "ARTICLE", "PREP", "CONJ", "INT"
     };
@@ -37,16 +48,12 @@ public class LemmaFinder {
     /**
      * Находит леммы в тексте и их количество повторений
      * @param text текст
-     * @return коллекция пар "лемма - кол-во повторений"
+     * @return леммы и кол-во их повторений
      */
-    public synchronized HashMap<String, Integer> getLemmas(String text) {
-        HashMap<String, Integer> lemmasMap = new HashMap<>();
-        String[] englishWords = getEnglishWordsArray(text);
-        String[] russianWords = getRussianWordsArray(text);
-
-        addLemmaToMap(lemmasMap, englishWords, englishMorphology);
-        addLemmaToMap(lemmasMap, russianWords, russianMorphology);
-
+    public LemmaCounts getLemmas(String text) {
+        LemmaCounts lemmasMap = new LemmaCounts();
+        Tokenizer.tokenize(text, MIN_WORD_LENGTH, (word, script) -> addLemmaToMap(lemmasMap, word,
+                script == Tokenizer.Script.ENGLISH ? englishMorphology : russianMorphology));
         return lemmasMap;
     }
 
@@ -59,53 +66,54 @@ public class LemmaFinder {
         }
     }
 
-    private synchronized void addLemmaToMap(Map<String, Integer> map, String[] words, LuceneMorphology morphology) {
-        for (String word : words) {
-            if (word.isBlank() || word.length() < 3)
-                continue;
-
-            List<String> wordBaseForms = morphology.getMorphInfo(word);
-            if (anyWordBaseBelongsToParticle(wordBaseForms))
-                continue;
+    private void addLemmaToMap(LemmaCounts map, String word, LuceneMorphology morphology) {
+        String normalForm = cache.get(word);
+        if (normalForm == null) {
+            normalForm = getNormalForm(word, morphology);
+            cache.put(word, normalForm);
+        }
 
-            List<String> normalForms = morphology.getNormalForms(word);
-            if (normalForms.isEmpty() || normalForms.get(0).length() < 3)
-                continue;
+        if (!normalForm.isEmpty())
+            map.add(normalForm, 1);
+    }
 
-            String normalForm = normalForms.get(0);
-            if (map.containsKey(normalForm)) {
-                map.put(normalForm, map.get(normalForm) + 1);
-            } else {
-                map.put(normalForm, 1);
-            }
-        }
+    /**
+     * Количество слов, нормальная форма которых найдена в кеше
+     */
+    public long getCacheHits() {
+        return cache.getHits();
     }
 
-    private String[] getEnglishWordsArray(String text) {
-        return text
-                .toLowerCase()
-                .replaceAll("[^a-z\\s]", " ")
-                .trim()
-                .split("\\s+");
+    /**
+     * Количество слов, разобранных с помощью словаря
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
     }
 
-    private String[] getRussianWordsArray(String text) {
-        return text
-                .toLowerCase()
-                .replaceAll("[^а-я\\s]", " ")
-                .trim()
-                .split("\\s+");
+    private String getNormalForm(String word, LuceneMorphology morphology) {
+        List<String> wordBaseForms = morphology.getMorphInfo(word);
+        if (anyWordBaseBelongsToParticle(wordBaseForms))
+            return SKIPPED;
+
+        List<String> normalForms = morphology.getNormalForms(word);
+        if (normalForms.isEmpty() || normalForms.get(0).length() < MIN_WORD_LENGTH)
+            return SKIPPED;
+
+        return normalForms.get(0);
     }
 
-    private synchronized boolean hasParticleProperty(String wordBase) {
+    private boolean hasParticleProperty(String wordBase) {
+        String upperCase = wordBase.toUpperCase();
+
         for (String property : PARTICLES_NAMES) {
-            if (wordBase.toUpperCase().contains(property))
+            if (upperCase.contains(property))
                 return true;
         }
         return false;
     }
 
-    private synchronized boolean anyWordBaseBelongsToParticle(List<String> wordBaseForms) {
+    private boolean anyWordBaseBelongsToParticle(List<String> wordBaseForms) {
         return wordBaseForms.stream().anyMatch(this::hasParticleProperty);
     }
 }
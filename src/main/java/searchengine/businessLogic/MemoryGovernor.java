@@ -0,0 +1,161 @@
+package searchengine.businessLogic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+
+import javax.management.NotificationEmitter;
+import java.lang.management.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Следит за заполненностью кучи после сборки мусора и замедляет индексацию, когда памяти становится мало:
+ * уменьшает количество одновременных запросов, очереди конвейера и размер пачек, чтобы страницы быстрее
+ * записывались в БД и освобождали память. Индексация продолжается медленнее, но не приводит к OutOfMemoryError,
+ * из-за которой перестал бы работать и поиск.
+ * О превышении порога JVM сообщает сразу, а снижение заполненности проверяется по таймеру.
+ */
+public class MemoryGovernor {
+    private static volatile MemoryGovernor instance;
+    /**
+     * Запас, на который заполненность должна опуститься ниже порога, чтобы уровень нагрузки снизился
+     */
+    private static final double HYSTERESIS = 0.05;
+    private final Logger logger = LoggerFactory.getLogger(MemoryGovernor.class);
+    private final IndexingSettings.Memory settings;
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private volatile Level level = Level.NORMAL;
+    private volatile double occupancy;
+
+    /**
+     * Уровень нагрузки на память
+     */
+    public enum Level {
+        NORMAL, ELEVATED, CRITICAL
+    }
+
+    /**
+     * Возвращает singleton экземпляр класса MemoryGovernor, создавая его при первом обращении
+     * @param settings настройки ограничения памяти
+     * @return экземпляр класса MemoryGovernor
+     */
+    public static MemoryGovernor getInstance(IndexingSettings.Memory settings) {
+        MemoryGovernor localInstance = instance;
+        if (localInstance == null) {
+            synchronized (MemoryGovernor.class) {
+                localInstance = instance;
+                if (localInstance == null) {
+                    instance = localInstance = new MemoryGovernor(settings);
+                }
+            }
+        }
+        return localInstance;
+    }
+
+    private MemoryGovernor(IndexingSettings.Memory settings) {
+        this.settings = settings;
+
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        // заполненность после сборки мусора имеет смысл только для старшего поколения:
+        // младшие области после сборки пусты или заполнены независимо от нагрузки
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * settings.getElevated()));
+                pools.add(pool);
+            }
+        }
+
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter) {
+            emitter.addNotificationListener((notification, handback) -> {
+                if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                    check();
+                }
+            }, null, null);
+        }
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "memory-governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::check, settings.getCheckInterval(), settings.getCheckInterval(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Возвращает долю старшего поколения кучи, занятую после последней сборки мусора
+     */
+    public double getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Уменьшает предел (количество запросов, размер очереди или пачки) в соответствии с нагрузкой на память:
+     * при повышенной нагрузке вдвое, при критической - до единицы
+     *
+     * @param value предел при нормальной нагрузке
+     * @return предел с учётом нагрузки, не меньше 1
+     */
+    public int scale(int value) {
+        return scale(value, level);
+    }
+
+    static int scale(int value, Level level) {
+        return switch (level) {
+            case NORMAL -> value;
+            case ELEVATED -> Math.max(1, value / 2);
+            case CRITICAL -> Math.min(1, value);
+        };
+    }
+
+    private synchronized void check() {
+        double current = 0;
+
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+
+            if (usage != null && usage.getMax() > 0) {
+                current = Math.max(current, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+
+        occupancy = current;
+        Level next = getLevel(current, level, settings.getElevated(), settings.getCritical());
+
+        if (next != level) {
+            logger.warn("Memory pressure changed from {} to {}: {}% of old generation used after GC",
+                    level, next, Math.round(current * 100));
+            level = next;
+        }
+    }
+
+    /**
+     * Определяет уровень нагрузки по заполненности: чтобы уровень не переключался туда и обратно
+     * около порога, снижается он только когда заполненность опустится ниже порога на {@value #HYSTERESIS}
+     */
+    static Level getLevel(double current, Level level, double elevated, double critical) {
+        if (current >= critical || level == Level.CRITICAL && current >= critical - HYSTERESIS) {
+            return Level.CRITICAL;
+        }
+
+        if (current >= elevated || level != Level.NORMAL && current >= elevated - HYSTERESIS) {
+            return Level.ELEVATED;
+        }
+
+        return Level.NORMAL;
+    }
+}
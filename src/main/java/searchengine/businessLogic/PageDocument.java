@@ -0,0 +1,82 @@
+package searchengine.businessLogic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import searchengine.model.Page;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Результат однократного разбора HTML страницы: заголовок, видимый текст и ссылки
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageDocument {
+    private static final String LINKS_SEPARATOR = "\n";
+    private final String title;
+    private final String text;
+    private final List<String> links;
+
+    /**
+     * Извлекает заголовок, текст и ссылки из HTML за один проход, не строя DOM.
+     * Страницы с повреждённой разметкой разбираются через DOM.
+     *
+     * @param html HTML страницы
+     * @return результат разбора
+     */
+    public static PageDocument parse(String html) {
+        PageDocument document = HtmlScanner.scan(html);
+        return document != null ? document : parse(Jsoup.parse(html));
+    }
+
+    /**
+     * Извлекает заголовок, текст и ссылки из разобранного документа
+     *
+     * @param doc документ
+     * @return результат разбора
+     */
+    public static PageDocument parse(Document doc) {
+        Set<String> links = new LinkedHashSet<>();
+        doc.select("a[href]").forEach(element -> {
+            String href = element.attr("href").replaceAll("[\\r\\n\\t]", "").trim();
+            if (!href.isEmpty()) {
+                links.add(href);
+            }
+        });
+        return new PageDocument(doc.title(), doc.text(), List.copyOf(links));
+    }
+
+    /**
+     * Возвращает сохранённые поля страницы. Страницы, проиндексированные до появления этих полей,
+     * разбираются заново.
+     *
+     * @param page страница
+     * @return результат разбора
+     */
+    public static PageDocument of(Page page) {
+        if (page.getText() == null) {
+            return parse(page.getContent());
+        }
+
+        List<String> links = page.getLinks() == null || page.getLinks().isEmpty()
+                ? List.of()
+                : Arrays.asList(page.getLinks().split(LINKS_SEPARATOR));
+        return new PageDocument(page.getTitle(), page.getText(), links);
+    }
+
+    /**
+     * Записывает поля в страницу для сохранения в БД
+     *
+     * @param page страница
+     */
+    public void applyTo(Page page) {
+        page.setTitle(title);
+        page.setText(text);
+        page.setLinks(String.join(LINKS_SEPARATOR, links));
+    }
+}
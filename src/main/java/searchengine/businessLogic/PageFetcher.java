@@ -0,0 +1,333 @@
+package searchengine.businessLogic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Общий HTTP-клиент для загрузки страниц. Соединения переиспользуются между запросами
+ * (keep-alive, HTTP/2 там, где сервер его поддерживает), ответы запрашиваются в сжатом виде.
+ */
+public class PageFetcher {
+    private static volatile PageFetcher instance;
+    static final String USER_AGENT = "BobTheSearcherBot";
+    private static final String REFERRER = "http://www.google.com";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final String CANCELLED = "Request cancelled";
+    private final HttpClient client;
+
+    /**
+     * Возвращает singleton экземпляр класса PageFetcher
+     * @return экземпляр класса PageFetcher
+     */
+    public static PageFetcher getInstance() {
+        PageFetcher localInstance = instance;
+        if (localInstance == null) {
+            synchronized (PageFetcher.class) {
+                localInstance = instance;
+                if (localInstance == null) {
+                    instance = localInstance = new PageFetcher();
+                }
+            }
+        }
+        return localInstance;
+    }
+
+    private PageFetcher() {
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "page-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Загружает страницу, блокируя текущий поток до получения ответа
+     *
+     * @param url адрес страницы
+     * @return результат загрузки
+     */
+    public FetchResult fetch(String url) {
+        return fetchAsync(url).join();
+    }
+
+    /**
+     * Загружает страницу асинхронно. Возвращаемый future никогда не завершается исключением:
+     * ошибки записываются в результат.
+     *
+     * @param url адрес страницы
+     * @return future с результатом загрузки
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url) {
+        return fetchAsync(url, null, null);
+    }
+
+    /**
+     * Загружает страницу асинхронно условным запросом. Если страница не изменилась,
+     * сервер ответит кодом 304 без тела.
+     *
+     * @param url          адрес страницы
+     * @param etag         значение ETag, полученное при прошлой загрузке (может быть null)
+     * @param lastModified значение Last-Modified, полученное при прошлой загрузке (может быть null)
+     * @return future с результатом загрузки
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url, String etag, String lastModified) {
+        return fetchAsync(url, etag, lastModified, null);
+    }
+
+    /**
+     * Загружает страницу асинхронно условным запросом, отсеивая ответы фильтром. Тело ответа,
+     * отвергнутого по заголовкам, не загружается, а загрузка слишком большого тела прерывается;
+     * в обоих случаях причина записывается в результат.
+     *
+     * @param url          адрес страницы
+     * @param etag         значение ETag, полученное при прошлой загрузке (может быть null)
+     * @param lastModified значение Last-Modified, полученное при прошлой загрузке (может быть null)
+     * @param filter       фильтр содержимого (может быть null)
+     * @return future с результатом загрузки
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url, String etag, String lastModified,
+                                                     ContentFilter filter) {
+        return fetchAsync(url, etag, lastModified, filter, null);
+    }
+
+    /**
+     * Загружает страницу асинхронно, как {@link #fetchAsync(String, String, String, ContentFilter)},
+     * прерывая открытый запрос при остановке индексации
+     *
+     * @param url          адрес страницы
+     * @param etag         значение ETag, полученное при прошлой загрузке (может быть null)
+     * @param lastModified значение Last-Modified, полученное при прошлой загрузке (может быть null)
+     * @param filter       фильтр содержимого (может быть null)
+     * @param token        признак остановки индексации (может быть null)
+     * @return future с результатом загрузки
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url, String etag, String lastModified,
+                                                     ContentFilter filter, CancellationToken token) {
+        FetchResult result = new FetchResult();
+        result.setUrl(url);
+        HttpRequest request;
+
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("User-Agent", USER_AGENT)
+                    .header("Referer", REFERRER)
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .GET();
+
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            result.setError(e.getMessage());
+            return CompletableFuture.completedFuture(result);
+        }
+
+        if (token != null && token.isCancelled()) {
+            result.setError(CANCELLED);
+            return CompletableFuture.completedFuture(result);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(request, bodyHandler(result, filter));
+        // отмена future, возвращённого sendAsync, обрывает соединение
+        CancellationToken.Registration registration = token == null
+                ? () -> {}
+                : token.onCancel(() -> exchange.cancel(true));
+
+        return exchange
+                .orTimeout(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, error) -> {
+                    registration.close();
+
+                    if (error != null && token != null && token.isCancelled()) {
+                        result.setError(CANCELLED);
+                        return result;
+                    }
+
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error;
+                        result.setError(cause.getMessage() == null ? cause.toString() : cause.getMessage());
+                        return result;
+                    }
+
+                    result.setStatusCode(response.statusCode());
+                    result.setHeaders(response.headers());
+                    result.setCharset(getCharset(response.headers().firstValue("Content-Type").orElse(null)));
+
+                    if (response.body() == null) {
+                        return result;
+                    }
+
+                    try {
+                        long limit = filter == null ? Long.MAX_VALUE : filter.getMaxBodySize();
+                        byte[] body = decode(response.body(), response.headers().firstValue("Content-Encoding").orElse(null), limit);
+
+                        if (body == null) {
+                            result.setSkipReason("Decoded body exceeds " + limit + " bytes");
+                        } else {
+                            result.setBody(body);
+                        }
+                    } catch (IOException e) {
+                        result.setError(e.getMessage());
+                    }
+
+                    return result;
+                });
+    }
+
+    private static HttpResponse.BodyHandler<byte[]> bodyHandler(FetchResult result, ContentFilter filter) {
+        if (filter == null) {
+            return HttpResponse.BodyHandlers.ofByteArray();
+        }
+
+        return info -> {
+            if (info.statusCode() >= 200 && info.statusCode() < 300) {
+                String reason = filter.check(info.headers().firstValue("Content-Type").orElse(null),
+                        info.headers().firstValueAsLong("Content-Length").orElse(-1));
+
+                if (reason != null) {
+                    result.setSkipReason(reason);
+                    return new LimitedBodySubscriber(0, result);
+                }
+            }
+
+            return new LimitedBodySubscriber(filter.getMaxBodySize(), result);
+        };
+    }
+
+    /**
+     * Распакованное тело ответа; если оно превышает limit байт, возвращает null
+     */
+    private static byte[] decode(byte[] body, String encoding, long limit) throws IOException {
+        if (encoding == null || body.length == 0) {
+            return body.length > limit ? null : body;
+        }
+
+        InputStream stream;
+        switch (encoding.trim().toLowerCase()) {
+            case "gzip", "x-gzip" -> stream = new GZIPInputStream(new ByteArrayInputStream(body));
+            case "deflate" -> stream = new InflaterInputStream(new ByteArrayInputStream(body));
+            default -> {
+                return body;
+            }
+        }
+
+        try (stream) {
+            if (limit >= Integer.MAX_VALUE) {
+                return stream.readAllBytes();
+            }
+
+            byte[] decoded = stream.readNBytes((int) limit + 1);
+            return decoded.length > limit ? null : decoded;
+        }
+    }
+
+    private static String getCharset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        for (String part : contentType.split(";")) {
+            String value = part.trim();
+            if (value.toLowerCase().startsWith("charset=")) {
+                return value.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Накапливает тело ответа и отменяет загрузку, как только оно превышает заданный размер
+     */
+    private static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final long limit;
+        private final FetchResult result;
+        private Flow.Subscription subscription;
+
+        private LimitedBodySubscriber(long limit, FetchResult result) {
+            this.limit = limit;
+            this.result = result;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+
+            if (result.isSkipped()) {
+                abort();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+
+            for (ByteBuffer item : items) {
+                if (buffer.size() + (long) item.remaining() > limit) {
+                    result.setSkipReason("Body exceeds " + limit + " bytes");
+                    abort();
+                    return;
+                }
+
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                buffer.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(buffer.toByteArray());
+        }
+
+        private void abort() {
+            subscription.cancel();
+            body.complete(null);
+        }
+    }
+}
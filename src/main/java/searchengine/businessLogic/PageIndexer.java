@@ -1,178 +1,391 @@
 package searchengine.businessLogic;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
-import org.jsoup.Jsoup;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import searchengine.dao.*;
 import searchengine.model.*;
+import searchengine.util.HibernateUtil;
 
 import java.util.*;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
-@RequiredArgsConstructor
-public class PageIndexer implements Callable<Integer> {
-    @Getter
-    private static ConcurrentHashMap<String, Lemma> lemmas = new ConcurrentHashMap<>();
-    @Getter
-    private static CopyOnWriteArrayList<Index> indexes = new CopyOnWriteArrayList<>();
+/**
+ * Лемматизирует страницы одного сайта и сохраняет их вместе с леммами и индексами.
+ * Страница, почти одинаковая с уже проиндексированной, сохраняется как её копия без индексов.
+ */
+public class PageIndexer {
     private final LemmaDao lemmaDao = LemmaDao.getInstance();
     private final IndexDao indexDao = new IndexDao();
     private final PageDao pageDao = new PageDao();
-    private final SiteDao siteDao = new SiteDao();
-    private Site site;
-    private Page page;
+    @Getter
+    private final Site site;
+    private final TermDictionary terms = TermDictionary.getInstance();
+    /**
+     * Идентификаторы лемм сайта по идентификатору слова в словаре
+     */
+    private final Map<Integer, Integer> lemmaIds = new ConcurrentHashMap<>();
+    private final DuplicateIndex duplicates = new DuplicateIndex();
+    private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+    /**
+     * Сессии, в которых сейчас записываются пачки
+     */
+    private final Set<Session> writing = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted;
+    private volatile Consumer<List<Integer>> onRelease = ids -> {
+    };
     private static final LemmaFinder lemmaFinder = LemmaFinder.getInstance();
 
-    public PageIndexer(Site site, Page page) {
+    public PageIndexer(Site site) {
         this.site = site;
-        this.page = page;
+        lemmaIds.putAll(lemmaDao.getIdsBySite(site));
+        pageDao.getFingerprintsBySite(site).forEach(row -> duplicates.add((Integer) row[0], (Long) row[1]));
     }
 
     /**
      * Полная индексация страницы
+     *
+     * @param page страница сайта; если она ещё не загружена (код ответа 0), она будет загружена
      */
-    public void index() {
-        getOrCreateSite();
-        Page p = getPage();
+    public void index(Page page) {
+        page.setSite(site);
 
-        if (p != null) {
-            deleteOrDecreaseLemma(p);
-            deleteIndexes(p);
-            deletePage(p);
+        if (page.getCode() == 0) {
+            SiteParser.parsePage(page);
         }
 
-        if (page.getCode() == 0) {
-            p = new Page();
-            p.setSite(site);
-            p.setPath(page.getPath());
-            SiteParser.parsePage(p);
-            pageDao.saveOrUpdate(p);
-            page = p;
-
-            if (page.getCode() >= 400) {
-                return;
-            }
-        } else {
-            pageDao.saveOrUpdate(page);
+        if (page.getCode() >= 400 || page.getContent() == null) {
+            delete(page);
+            return;
         }
 
-        String text = getTextFromPage(page.getContent());
-        HashMap<String, Integer> lemmasMap = lemmaFinder.getLemmas(text);
-        collectLemmasAndIndexes(lemmasMap);
+        persist(List.of(lemmatize(page)));
+        deleteUnusedLemmas();
     }
 
-    @Override
-    public Integer call() {
-        try {
-            index();
-            return 1;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
+    /**
+     * Находит леммы на странице и вычисляет её отпечаток
+     *
+     * @param page загруженная страница
+     * @return страница вместе с найденными леммами
+     */
+    public IndexedPage lemmatize(Page page) {
+        String text = PageDocument.of(page).getText();
+        LemmaCounts lemmas = lemmaFinder.getLemmas(text);
+        page.setSimhash(SimHash.of(lemmas));
+        return new IndexedPage(page, lemmas);
     }
 
-    private String getTextFromPage(String content) {
-        return Jsoup.parse(content).text();
-    }
+    /**
+     * Сохраняет пачку страниц вместе с леммами и индексами одной транзакцией: прежние версии страниц удаляются,
+     * а почти одинаковые страницы сохраняются как копии без индексов. Если запись не удалась или прервана
+     * {@link #abort}, транзакция откатывается, и в БД остаются прежние версии страниц.
+     *
+     * @param batch лемматизированные страницы
+     * @throws IllegalStateException если не удалось создать леммы страниц или запись прервана
+     */
+    public void persist(List<IndexedPage> batch) {
+        List<IndexedPage> unique = new ArrayList<>();
+        List<Page> pages = new ArrayList<>();
+        List<Page> aliases = new ArrayList<>();
+        // копии страниц из этой же пачки, идентификаторы которых появятся только после сохранения
+        List<Page> pendingAliases = new ArrayList<>();
+        List<Page> pendingOriginals = new ArrayList<>();
+        List<Page> previous = new ArrayList<>();
+        List<Integer> released = new ArrayList<>();
+        Session session = sessionFactory.openSession();
+        writing.add(session);
+        Transaction transaction = null;
 
-    private Page getPage() {
-        return pageDao.get(page).orElse(null);
-    }
+        try {
+            for (IndexedPage indexedPage : batch) {
+                indexedPage.getPage().setSite(site);
+                pageDao.get(session, indexedPage.getPage()).ifPresent(previous::add);
+            }
+
+            // отпечатки прежних версий убираются заранее, чтобы страница не оказалась копией самой себя;
+            // если транзакция откатится, они будут возвращены
+            previous.forEach(this::forgetFingerprint);
+
+            for (IndexedPage indexedPage : batch) {
+                Page page = indexedPage.getPage();
+                page.setCanonicalPageId(null);
+
+                if (page.getSimhash() != null) {
+                    Integer canonicalPageId = duplicates.find(page.getSimhash());
+
+                    if (canonicalPageId != null) {
+                        page.setCanonicalPageId(canonicalPageId);
+                        aliases.add(page);
+                        continue;
+                    }
+
+                    Page original = findOriginal(unique, page.getSimhash());
 
-    private void getOrCreateSite() {
-        Site s = siteDao.get(site).orElse(null);
-        if (s == null) {
-            site.setName(site.getUrl());
-            siteDao.save(site);
-        } else {
-            site = s;
-            if (page.getSite() == null) {
-                page.setSite(site);
+                    if (original != null) {
+                        pendingAliases.add(page);
+                        pendingOriginals.add(original);
+                        continue;
+                    }
+                }
+
+                unique.add(indexedPage);
+                pages.add(page);
+            }
+
+            Map<String, Integer> ids = getLemmaIds(unique);
+            checkAborted();
+            transaction = session.beginTransaction();
+            // изменения частоты лемм от удаления и сохранения страниц выполняются вместе в одном порядке,
+            // чтобы параллельные транзакции не блокировали друг друга
+            Map<Integer, Integer> deltas = new HashMap<>();
+
+            for (Page p : previous) {
+                delete(session, p, deltas, released);
+            }
+
+            session.flush();
+            checkAborted();
+            pageDao.saveBatch(session, pages);
+
+            for (int i = 0; i < pendingAliases.size(); i++) {
+                pendingAliases.get(i).setCanonicalPageId(pendingOriginals.get(i).getId());
+                aliases.add(pendingAliases.get(i));
             }
+
+            pageDao.saveBatch(session, aliases);
+            checkAborted();
+            collectLemmasAndIndexes(session, unique, ids, deltas);
+            checkAborted();
+            transaction.commit();
+        } catch (RuntimeException e) {
+            rollback(transaction);
+            previous.forEach(this::rememberFingerprint);
+            // страницы можно будет сохранить заново
+            pages.forEach(page -> page.setId(0));
+            aliases.forEach(page -> page.setId(0));
+            throw e;
+        } finally {
+            writing.remove(session);
+            session.close();
+        }
+
+        pages.forEach(this::rememberFingerprint);
+
+        if (!released.isEmpty()) {
+            onRelease.accept(released);
         }
     }
 
-    private Lemma createLemma(String lemma, int frequency) {
-        Lemma l = new Lemma();
-        l.setSite(site);
-        l.setFrequency(frequency);
-        l.setLemma(lemma);
-        return l;
+    /**
+     * Задаёт действие, выполняемое после того, как копии удалённых страниц были отвязаны от них
+     * и их заголовки для условных запросов сброшены
+     */
+    public void setOnRelease(Consumer<List<Integer>> onRelease) {
+        this.onRelease = onRelease;
     }
 
-    private Index createIndex(Lemma lemma, float rank) {
-        Index index = new Index();
-        index.setPage(page);
-        index.setLemma(lemma);
-        index.setRank(rank);
-        return index;
+    /**
+     * Прерывает запись пачек: выполняемые запросы отменяются, а транзакции откатываются.
+     * Вызывается, когда запись не завершилась за отведённое при остановке время.
+     */
+    public void abort() {
+        aborted = true;
+
+        for (Session session : writing) {
+            try {
+                session.cancelQuery();
+            } catch (RuntimeException e) {
+                // запрос мог завершиться, пока сессия закрывалась; транзакцию откатит проверка признака
+            }
+        }
     }
 
-    private void deleteOrDecreaseLemma(Page p) {
-        List<Index> indexes = indexDao.getListByPage(p).orElse(new ArrayList<>());
+    private static Page findOriginal(List<IndexedPage> unique, long simhash) {
+        for (IndexedPage indexedPage : unique) {
+            Long hash = indexedPage.getPage().getSimhash();
 
-        if (indexes.isEmpty()) {
-            return;
+            if (hash != null && SimHash.distance(hash, simhash) <= DuplicateIndex.MAX_DISTANCE) {
+                return indexedPage.getPage();
+            }
         }
 
-        for (Index index : indexes) {
-            Lemma lemma = lemmaDao.get(index.getLemma().getId()).orElse(null);
+        return null;
+    }
+
+    /**
+     * Удаляет страницу из индекса вместе с её индексами, уменьшая частоту лемм, одной транзакцией.
+     * Копии удалённой страницы будут проиндексированы заново при следующей загрузке.
+     *
+     * @param page страница сайта
+     */
+    public void delete(Page page) {
+        page.setSite(site);
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        Page p = null;
+        List<Integer> released = new ArrayList<>();
 
-            if (lemma == null) {
+        try {
+            p = pageDao.get(session, page).orElse(null);
+
+            if (p == null) {
                 return;
             }
 
-            int frequency = lemma.getFrequency() - Math.round(index.getRank());
+            forgetFingerprint(p);
+            transaction = session.beginTransaction();
+            Map<Integer, Integer> deltas = new HashMap<>();
+            delete(session, p, deltas, released);
+            lemmaDao.addFrequencies(session, deltas);
+            transaction.commit();
+        } catch (RuntimeException e) {
+            rollback(transaction);
 
-            if (frequency <= 0) {
-                indexDao.delete(index);
-                lemmaDao.delete(lemma);
-            } else {
-                lemma.setFrequency(frequency);
-                lemmaDao.update(lemma);
+            if (p != null) {
+                rememberFingerprint(p);
             }
+
+            throw e;
+        } finally {
+            session.close();
+        }
+
+        if (!released.isEmpty()) {
+            onRelease.accept(released);
         }
     }
 
-    private synchronized void deleteIndexes(Page p) {
-        Optional<List<Index>> optional = indexDao.getListByPage(p);
-        List<Index> indexes = optional.orElse(new ArrayList<>());
+    private void delete(Session session, Page p, Map<Integer, Integer> deltas, List<Integer> released) {
+        if (p.getCanonicalPageId() == null) {
+            decreaseLemmas(session, p, deltas);
+            indexDao.deleteByPage(session, p);
+            released.addAll(pageDao.releaseAliases(session, p.getId()));
+        }
 
-        if (indexes.isEmpty()) {
-            return;
+        pageDao.delete(session, p);
+    }
+
+    private void forgetFingerprint(Page p) {
+        if (p.getCanonicalPageId() == null && p.getSimhash() != null) {
+            duplicates.remove(p.getId(), p.getSimhash());
         }
+    }
 
-        for (Index index : indexes) {
-            indexDao.delete(index);
+    private void rememberFingerprint(Page p) {
+        if (p.getCanonicalPageId() == null && p.getSimhash() != null) {
+            duplicates.add(p.getId(), p.getSimhash());
         }
     }
 
-    private void deletePage(Page p) {
-        pageDao.delete(p);
+    private void checkAborted() {
+        if (aborted) {
+            throw new IllegalStateException("Saving pages of " + site.getUrl() + " aborted");
+        }
     }
 
-    private void collectLemmasAndIndexes(HashMap<String, Integer> lemmasMap) {
-        for (Map.Entry<String, Integer> entry : lemmasMap.entrySet()) {
-            Index index;
-            Lemma lemma;
+    private static void rollback(Transaction transaction) {
+        if (transaction != null && transaction.isActive()) {
+            transaction.rollback();
+        }
+    }
 
-            if (lemmas.containsKey(entry.getKey())) {
-                lemma = lemmas.get(entry.getKey());
-                int freq = lemma.getFrequency() + entry.getValue();
-                lemma.setFrequency(freq);
+    /**
+     * Удаляет леммы сайта, которые больше не встречаются ни на одной странице
+     */
+    public void deleteUnusedLemmas() {
+        synchronized (lemmaIds) {
+            lemmaDao.deleteUnused(site);
+            lemmaIds.clear();
+            lemmaIds.putAll(lemmaDao.getIdsBySite(site));
+        }
+    }
+
+    private void decreaseLemmas(Session session, Page p, Map<Integer, Integer> deltas) {
+        List<Index> indexes = indexDao.getListByPage(session, p).orElse(new ArrayList<>());
+
+        for (Index index : indexes) {
+            deltas.merge(index.getLemma().getId(), -Math.round(index.getRank()), Integer::sum);
+        }
+    }
+
+    /**
+     * Находит или создаёт леммы всех страниц пачки до сохранения страниц, чтобы ни одна страница
+     * не осталась в индексе без части своих лемм
+     *
+     * @return идентификаторы лемм по тексту
+     */
+    private Map<String, Integer> getLemmaIds(List<IndexedPage> batch) {
+        Set<String> words = new HashSet<>();
+        batch.forEach(indexedPage -> indexedPage.getLemmas().forEach((lemma, count) -> words.add(lemma)));
+        Map<String, Integer> termIds = terms.getOrCreate(words);
+        createMissingLemmas(termIds.values());
+
+        Map<String, Integer> ids = new HashMap<>();
+        int missing = 0;
+
+        for (String word : words) {
+            Integer termId = termIds.get(word);
+            Integer lemmaId = termId == null ? null : lemmaIds.get(termId);
+
+            if (lemmaId == null) {
+                missing++;
             } else {
-                lemma = createLemma(entry.getKey(), entry.getValue());
+                ids.put(word, lemmaId);
             }
+        }
+
+        if (missing > 0) {
+            throw new IllegalStateException("Failed to create " + missing + " lemmas for " + site.getUrl());
+        }
+
+        return ids;
+    }
+
+    private void collectLemmasAndIndexes(Session session, List<IndexedPage> batch, Map<String, Integer> ids,
+                                         Map<Integer, Integer> deltas) {
+        // частоты копятся без упаковки в Integer и переводятся в идентификаторы один раз на лемму
+        LemmaCounts frequencies = new LemmaCounts();
+        List<Index> indexes = new ArrayList<>();
 
-            lemmas.compute(entry.getKey(), (k, v) -> lemma);
+        for (IndexedPage indexedPage : batch) {
+            indexedPage.getLemmas().forEach((lemma, count) -> {
+                frequencies.add(lemma, count);
+                indexes.add(createIndex(indexedPage.getPage(), ids.get(lemma), count));
+            });
+        }
+
+        frequencies.forEach((lemma, count) -> deltas.merge(ids.get(lemma), count, Integer::sum));
+        lemmaDao.addFrequencies(session, deltas);
+        indexDao.saveOrUpdateBatch(session, indexes);
+    }
+
+    private void createMissingLemmas(Collection<Integer> termIds) {
+        synchronized (lemmaIds) {
+            List<Integer> missing = new ArrayList<>();
 
-            if (lemma.getSite().getId() == page.getSite().getId()) {
-                index = createIndex(lemma, entry.getValue());
-                indexes.add(index);
+            for (Integer termId : termIds) {
+                if (!lemmaIds.containsKey(termId)) {
+                    missing.add(termId);
+                }
             }
+
+            // леммы могут параллельно создавать другие рабочие процессы, поэтому существующие не дублируются
+            lemmaIds.putAll(lemmaDao.insertMissing(site, missing));
         }
     }
-}
\ No newline at end of file
+
+    private Index createIndex(Page page, int lemmaId, float rank) {
+        Lemma lemma = new Lemma();
+        lemma.setId(lemmaId);
+        lemma.setSite(site);
+
+        Index index = new Index();
+        index.setPage(page);
+        index.setLemma(lemma);
+        index.setRank(rank);
+        return index;
+    }
+}
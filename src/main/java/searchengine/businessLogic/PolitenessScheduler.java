@@ -0,0 +1,139 @@
+package searchengine.businessLogic;
+
+import searchengine.config.IndexingSettings;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Планировщик запросов, ограничивающий частоту обращений к каждому хосту.
+ * Запросы, для которых ещё нет свободного токена, откладываются по таймеру,
+ * а не ждут в рабочем потоке.
+ */
+public class PolitenessScheduler {
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "politeness-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final IndexingSettings.Politeness settings;
+
+    public PolitenessScheduler(IndexingSettings.Politeness settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Передаёт задачу исполнителю, как только для хоста освободится токен
+     *
+     * @param host     хост, к которому будет выполнен запрос
+     * @param executor исполнитель задачи
+     * @param task     задача
+     */
+    public void execute(String host, Executor executor, Runnable task) {
+        long delay = getBucket(host).reserve(System.nanoTime());
+
+        if (delay <= 0) {
+            submit(executor, task);
+        } else {
+            timer.schedule(() -> submit(executor, task), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Приостанавливает запросы к хосту после ответа 429 или 503
+     *
+     * @param host       хост
+     * @param retryAfter значение заголовка Retry-After (может быть null)
+     * @param attempt    номер повторной попытки, начиная с 0
+     */
+    public void backoff(String host, String retryAfter, int attempt) {
+        long delay = parseRetryAfter(retryAfter);
+
+        if (delay < 0) {
+            delay = BASE_BACKOFF_MILLIS << Math.min(attempt, 16);
+        }
+
+        delay = Math.min(delay, settings.getMaxBackoff());
+        getBucket(host).pause(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    public int getMaxRetries() {
+        return settings.getMaxRetries();
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private TokenBucket getBucket(String host) {
+        return buckets.computeIfAbsent(host, h -> new TokenBucket(settings.getRate(), settings.getBurst()));
+    }
+
+    private static void submit(Executor executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // обход уже завершён, задача больше не нужна
+        }
+    }
+
+    private static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ignored) {
+            // значение может быть задано датой
+        }
+
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Ведро токенов с резервированием: каждый запрос получает свой момент отправки
+     */
+    private static class TokenBucket {
+        private final long interval;
+        private final double burst;
+        private double stored;
+        private long nextFree;
+
+        TokenBucket(double rate, int burst) {
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(rate, 0.001));
+            this.burst = Math.max(burst, 1);
+            this.stored = this.burst;
+            this.nextFree = System.nanoTime();
+        }
+
+        synchronized long reserve(long now) {
+            if (now > nextFree) {
+                stored = Math.min(burst, stored + (double) (now - nextFree) / interval);
+                nextFree = now;
+            }
+
+            long wait = nextFree - now;
+            double fromStored = Math.min(1.0, stored);
+            stored -= fromStored;
+            nextFree += (long) ((1.0 - fromStored) * interval);
+            return wait;
+        }
+
+        synchronized void pause(long now, long delay) {
+            stored = 0;
+            nextFree = Math.max(nextFree, now + delay);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package searchengine.businessLogic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+import searchengine.dao.PageDao;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Повторно загружает отдельные страницы, которым подошёл срок, и обновляет индекс только
+ * для изменившихся страниц. Повторная загрузка останавливается, когда запускается полная индексация,
+ * чтобы они не обрабатывали одни и те же страницы и не удаляли леммы друг друга.
+ */
+public class Recrawler {
+    private static final PageFetcher fetcher = PageFetcher.getInstance();
+    private final Logger logger = LoggerFactory.getLogger(Recrawler.class);
+    private final PageDao pageDao = new PageDao();
+    private final CrawlScheduler scheduler;
+    private final RevisitPolicy revisits;
+    private final ContentFilter filter;
+    private final long stopTimeout;
+    private final Map<Integer, PageIndexer> indexers = new ConcurrentHashMap<>();
+
+    public Recrawler(CrawlScheduler scheduler, IndexingSettings settings) {
+        this.scheduler = scheduler;
+        this.revisits = new RevisitPolicy(settings.getRecrawl());
+        this.filter = new ContentFilter(settings.getFilter());
+        this.stopTimeout = settings.getScheduler().getStopTimeout();
+    }
+
+    /**
+     * Загружает страницы условными запросами с соблюдением ограничений частоты запросов к хостам
+     * и дожидается их обработки. После остановки обработка ожидается не дольше stop-timeout: задачи,
+     * удалённые из пулов планировщика, уже не завершатся.
+     *
+     * @param pages страницы вместе с сайтами
+     * @param token признак остановки
+     */
+    public void recrawl(List<Page> pages, CancellationToken token) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(pages.size());
+
+        for (Page page : pages) {
+            String url = SiteParser.getUrl(page);
+            String host = URI.create(url).getHost();
+
+            scheduler.getPoliteness().execute(host, scheduler.fetch(page.getSite().getUrl()), () -> {
+                if (token.isCancelled()) {
+                    done.countDown();
+                    return;
+                }
+
+                fetcher.fetchAsync(url, page.getEtag(), page.getLastModified(), filter, token)
+                        .thenAcceptAsync(result -> {
+                            if (!token.isCancelled()) {
+                                handle(page, result);
+                            }
+                        }, scheduler.fetch(page.getSite().getUrl()))
+                        .whenComplete((result, error) -> {
+                            if (error != null && !token.isCancelled()) {
+                                logger.error("Failed to recrawl {}: {}", url, error.getMessage());
+                            }
+                            done.countDown();
+                        });
+            });
+        }
+
+        while (!done.await(1, TimeUnit.SECONDS)) {
+            if (token.isCancelled()) {
+                if (!done.await(Math.max(0, stopTimeout - token.getMillisSinceCancel()), TimeUnit.MILLISECONDS)) {
+                    logger.warn("Recrawl did not stop in time: {} pages still in progress", done.getCount());
+                }
+                break;
+            }
+        }
+
+        // после остановки леммы не удаляются: ими уже может пользоваться полная индексация
+        if (token.isCancelled()) {
+            return;
+        }
+
+        for (PageIndexer indexer : indexers.values()) {
+            indexer.deleteUnusedLemmas();
+        }
+    }
+
+    private void handle(Page previous, FetchResult result) {
+        if (result.isFailed() || SiteParser.isThrottled(result.getStatusCode())) {
+            revisits.postpone(previous);
+            pageDao.updateSchedule(previous);
+            return;
+        }
+
+        if (result.getStatusCode() == 304) {
+            revisits.onFetched(previous, previous, false);
+            pageDao.updateSchedule(previous);
+            return;
+        }
+
+        PageIndexer indexer = getIndexer(previous.getSite());
+        Page page = new Page();
+        page.setSite(previous.getSite());
+        page.setPath(previous.getPath());
+        SiteParser.applyResult(page, result);
+
+        if (page.getCode() >= 400 || page.getContent() == null) {
+            indexer.delete(previous);
+            return;
+        }
+
+        if (Objects.equals(previous.getContentHash(), page.getContentHash())) {
+            revisits.onFetched(previous, previous, false);
+            pageDao.updateSchedule(previous);
+            return;
+        }
+
+        revisits.onFetched(page, previous, true);
+        indexer.persist(List.of(indexer.lemmatize(page)));
+    }
+
+    private PageIndexer getIndexer(Site site) {
+        return indexers.computeIfAbsent(site.getId(), id -> new PageIndexer(site));
+    }
+}
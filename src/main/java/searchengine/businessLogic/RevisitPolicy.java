@@ -0,0 +1,57 @@
+package searchengine.businessLogic;
+
+import searchengine.config.IndexingSettings;
+import searchengine.model.Page;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Подбирает интервал повторной загрузки страницы по истории её изменений: если страница
+ * изменилась с прошлой загрузки, интервал сокращается, если нет - увеличивается.
+ */
+public class RevisitPolicy {
+    private static final double DECREASE = 0.5;
+    private static final double INCREASE = 1.5;
+    private final long initial;
+    private final long min;
+    private final long max;
+
+    public RevisitPolicy(IndexingSettings.Recrawl settings) {
+        this.min = settings.getMinInterval().toSeconds();
+        this.max = Math.max(min, settings.getMaxInterval().toSeconds());
+        this.initial = clamp(settings.getInitialInterval().toSeconds());
+    }
+
+    /**
+     * Записывает в страницу время загрузки и время следующей загрузки
+     *
+     * @param page     загруженная страница
+     * @param previous та же страница при прошлой загрузке (может быть null)
+     * @param changed  true, если содержимое страницы изменилось
+     */
+    public void onFetched(Page page, Page previous, boolean changed) {
+        Date now = new Date();
+        long interval = previous == null || previous.getRevisitInterval() <= 0
+                ? initial
+                : clamp(Math.round(previous.getRevisitInterval() * (changed ? DECREASE : INCREASE)));
+
+        page.setLastFetched(now);
+        page.setLastChanged(changed || previous == null ? now : previous.getLastChanged());
+        page.setRevisitInterval(interval);
+        page.setNextFetch(new Date(now.getTime() + Duration.ofSeconds(interval).toMillis()));
+    }
+
+    /**
+     * Откладывает загрузку страницы, которую не удалось получить, не меняя её интервал
+     *
+     * @param page страница
+     */
+    public void postpone(Page page) {
+        page.setNextFetch(new Date(System.currentTimeMillis() + Duration.ofSeconds(min).toMillis()));
+    }
+
+    private long clamp(long interval) {
+        return Math.max(min, Math.min(max, interval));
+    }
+}
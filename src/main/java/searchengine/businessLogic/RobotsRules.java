@@ -0,0 +1,163 @@
+package searchengine.businessLogic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Правила robots.txt для нашего робота: запрещённые и разрешённые пути и адреса карт сайта
+ */
+public class RobotsRules {
+    private static final String ANY_AGENT = "*";
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> sitemaps = new ArrayList<>();
+
+    /**
+     * Правила, разрешающие обход всего сайта
+     */
+    public static RobotsRules allowAll() {
+        return new RobotsRules();
+    }
+
+    /**
+     * Разбирает robots.txt. Используется группа правил, в которой упомянут наш робот,
+     * а если такой нет - группа для всех роботов.
+     *
+     * @param text      содержимое robots.txt
+     * @param userAgent имя нашего робота
+     * @return правила обхода
+     */
+    public static RobotsRules parse(String text, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        RobotsRules own = new RobotsRules();
+        RobotsRules common = new RobotsRules();
+        List<String> sitemaps = new ArrayList<>();
+        List<String> groupAgents = new ArrayList<>();
+        boolean groupHasRules = false;
+        // группа для нашего робота применяется, даже если она всё разрешает и не содержит ни одного правила
+        boolean ownGroupFound = false;
+
+        for (String rawLine : text.split("\\r?\\n|\\r")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment < 0 ? rawLine : rawLine.substring(0, comment)).trim();
+            int colon = line.indexOf(':');
+
+            if (colon < 0) {
+                continue;
+            }
+
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (field) {
+                case "user-agent" -> {
+                    if (groupHasRules) {
+                        groupAgents.clear();
+                        groupHasRules = false;
+                    }
+                    String groupAgent = value.toLowerCase(Locale.ROOT);
+                    groupAgents.add(groupAgent);
+                    ownGroupFound |= isOwnAgent(agent, groupAgent);
+                }
+                case "allow", "disallow" -> {
+                    groupHasRules = true;
+
+                    if (value.isEmpty()) {
+                        continue;
+                    }
+
+                    Rule rule = new Rule(value, field.equals("allow"));
+                    for (String groupAgent : groupAgents) {
+                        if (groupAgent.equals(ANY_AGENT)) {
+                            common.rules.add(rule);
+                        } else if (isOwnAgent(agent, groupAgent)) {
+                            own.rules.add(rule);
+                        }
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> {
+                    // остальные директивы не поддерживаются
+                }
+            }
+        }
+
+        RobotsRules result = ownGroupFound ? own : common;
+        result.sitemaps.addAll(sitemaps);
+        return result;
+    }
+
+    private static boolean isOwnAgent(String agent, String groupAgent) {
+        return !groupAgent.isEmpty() && !groupAgent.equals(ANY_AGENT) && agent.contains(groupAgent);
+    }
+
+    /**
+     * Проверяет, разрешён ли обход пути. Из подходящих правил применяется самое длинное,
+     * при равной длине разрешающее правило важнее запрещающего.
+     *
+     * @param path путь страницы
+     * @return true, если путь можно загружать
+     */
+    public boolean isAllowed(String path) {
+        Rule best = null;
+
+        for (Rule rule : rules) {
+            if (!rule.matches(path)) {
+                continue;
+            }
+
+            if (best == null || rule.length() > best.length()
+                    || (rule.length() == best.length() && rule.allow)) {
+                best = rule;
+            }
+        }
+
+        return best == null || best.allow;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private record Rule(String value, boolean allow, Pattern pattern) {
+        Rule(String value, boolean allow) {
+            this(value, allow, compile(value));
+        }
+
+        boolean matches(String path) {
+            return pattern == null ? path.startsWith(value) : pattern.matcher(path).lookingAt();
+        }
+
+        int length() {
+            return value.length();
+        }
+
+        private static Pattern compile(String value) {
+            if (value.indexOf('*') < 0 && !value.endsWith("$")) {
+                return null;
+            }
+
+            boolean anchored = value.endsWith("$");
+            String body = anchored ? value.substring(0, value.length() - 1) : value;
+            StringBuilder regex = new StringBuilder();
+
+            for (String part : body.split("\\*", -1)) {
+                if (!regex.isEmpty()) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+
+            if (anchored) {
+                regex.append('$');
+            }
+
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package searchengine.businessLogic;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Предварительный этап обхода: читает robots.txt и карты сайта, чтобы сразу заполнить
+ * очередь обхода известными адресами и не заходить в запрещённые разделы.
+ */
+public class SeedDiscovery {
+    private static final PageFetcher fetcher = PageFetcher.getInstance();
+    private final Logger logger = LoggerFactory.getLogger(SeedDiscovery.class);
+    private final String root;
+    private final String host;
+    private final UrlCanonicalizer canonicalizer;
+    private final Map<String, Instant> seeds = new LinkedHashMap<>();
+    private final Map<String, Double> priorities = new HashMap<>();
+    private RobotsRules rules = RobotsRules.allowAll();
+    private CancellationToken token = new CancellationToken();
+
+    private SeedDiscovery(String root, IndexingSettings.Canonicalization canonicalization) {
+        this.root = root;
+        this.host = URI.create(root).getHost();
+        this.canonicalizer = new UrlCanonicalizer(root, canonicalization);
+    }
+
+    /**
+     * Читает robots.txt и карты сайта
+     *
+     * @param root       корень сайта, например https://example.com
+     * @param settings   настройки индексации
+     * @param politeness планировщик запросов к хосту
+     * @return правила обхода и найденные адреса; если этап выключен - пустой результат
+     */
+    public static SeedDiscovery discover(String root, IndexingSettings settings, PolitenessScheduler politeness) {
+        return discover(root, settings, politeness, new CancellationToken());
+    }
+
+    /**
+     * Читает robots.txt и карты сайта, прекращая чтение при остановке индексации
+     *
+     * @param root       корень сайта, например https://example.com
+     * @param settings   настройки индексации
+     * @param politeness планировщик запросов к хосту
+     * @param token      признак остановки индексации
+     * @return правила обхода и найденные до остановки адреса
+     */
+    public static SeedDiscovery discover(String root, IndexingSettings settings, PolitenessScheduler politeness,
+                                         CancellationToken token) {
+        SeedDiscovery discovery = new SeedDiscovery(root, settings.getCanonicalization());
+        discovery.token = token;
+
+        if (settings.getDiscovery().isEnabled()) {
+            discovery.readRobots(politeness);
+            discovery.readSitemaps(politeness, settings.getDiscovery());
+        }
+
+        return discovery;
+    }
+
+    /**
+     * Читает только robots.txt, без карт сайта
+     *
+     * @param root       корень сайта, например https://example.com
+     * @param settings   настройки индексации
+     * @param politeness планировщик запросов к хосту
+     * @return правила обхода; если этап выключен - правила, разрешающие всё
+     */
+    public static SeedDiscovery robots(String root, IndexingSettings settings, PolitenessScheduler politeness) {
+        SeedDiscovery discovery = new SeedDiscovery(root, settings.getCanonicalization());
+
+        if (settings.getDiscovery().isEnabled()) {
+            discovery.readRobots(politeness);
+        }
+
+        return discovery;
+    }
+
+    public RobotsRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Возвращает пути из карт сайта вместе с датами изменения (дата может быть null)
+     */
+    public Map<String, Instant> getSeeds() {
+        return seeds;
+    }
+
+    /**
+     * Возвращает приоритет страницы из карты сайта
+     *
+     * @param path путь страницы
+     * @return приоритет от 0 до 1 или null, если он не задан
+     */
+    public Double getPriority(String path) {
+        return priorities.get(path);
+    }
+
+    /**
+     * Проверяет по дате из карты сайта, что страница не менялась с прошлой загрузки
+     *
+     * @param path         путь страницы
+     * @param lastModified значение Last-Modified, полученное при прошлой загрузке (может быть null)
+     * @return true, если страницу можно не загружать
+     */
+    public boolean isUnchanged(String path, String lastModified) {
+        Instant lastmod = seeds.get(path);
+
+        if (lastmod == null || lastModified == null) {
+            return false;
+        }
+
+        try {
+            Instant fetched = ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastmod.isAfter(fetched);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private void readRobots(PolitenessScheduler politeness) {
+        FetchResult result = fetch(root + "/robots.txt", politeness);
+
+        if (result.isFailed() || result.getStatusCode() != 200 || result.getBody() == null) {
+            logger.info("No robots.txt on {}: {}", root,
+                    result.isFailed() ? result.getError() : result.getStatusCode());
+            return;
+        }
+
+        rules = RobotsRules.parse(new String(result.getBody(), StandardCharsets.UTF_8), PageFetcher.USER_AGENT);
+    }
+
+    private void readSitemaps(PolitenessScheduler politeness, IndexingSettings.Discovery settings) {
+        Deque<String> queue = new ArrayDeque<>(rules.getSitemaps());
+        Set<String> read = new HashSet<>();
+
+        if (queue.isEmpty()) {
+            queue.add(root + "/sitemap.xml");
+        }
+
+        while (!token.isCancelled() && !queue.isEmpty() && read.size() < settings.getMaxSitemaps() && seeds.size() < settings.getMaxUrls()) {
+            String url = queue.poll();
+
+            if (!read.add(url)) {
+                continue;
+            }
+
+            FetchResult result = fetch(url, politeness);
+
+            if (result.isFailed() || result.getStatusCode() != 200 || result.getBody() == null) {
+                logger.info("Failed to read sitemap {}: {}", url,
+                        result.isFailed() ? result.getError() : result.getStatusCode());
+                continue;
+            }
+
+            try {
+                Document doc = Jsoup.parse(new String(unzip(result.getBody()), StandardCharsets.UTF_8), url, Parser.xmlParser());
+
+                for (Element loc : doc.select("sitemapindex > sitemap > loc")) {
+                    queue.add(loc.text().trim());
+                }
+
+                for (Element entry : doc.select("urlset > url")) {
+                    if (seeds.size() >= settings.getMaxUrls()) {
+                        break;
+                    }
+
+                    addSeed(entry.selectFirst("loc"), entry.selectFirst("lastmod"), entry.selectFirst("priority"));
+                }
+            } catch (IOException e) {
+                logger.info("Failed to read sitemap {}: {}", url, e.getMessage());
+            }
+        }
+
+        logger.info("Found {} urls in {} sitemaps on {}", seeds.size(), read.size(), root);
+    }
+
+    private void addSeed(Element loc, Element lastmod, Element priority) {
+        if (loc == null) {
+            return;
+        }
+
+        String path = canonicalizer.canonicalize(loc.text());
+
+        if (path != null && rules.isAllowed(path)) {
+            seeds.put(path, lastmod == null ? null : parseLastmod(lastmod.text().trim()));
+
+            if (priority != null) {
+                parsePriority(priority.text().trim()).ifPresent(value -> priorities.put(path, value));
+            }
+        }
+    }
+
+    private FetchResult fetch(String url, PolitenessScheduler politeness) {
+        CompletableFuture<FetchResult> future = new CompletableFuture<>();
+        politeness.execute(host, Runnable::run, () -> fetcher.fetchAsync(url, null, null, null, token)
+                .thenAccept(future::complete));
+        return future.join();
+    }
+
+    private static byte[] unzip(byte[] body) throws IOException {
+        if (body.length < 2 || (body[0] & 0xff) != 0x1f || (body[1] & 0xff) != 0x8b) {
+            return body;
+        }
+
+        try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static Optional<Double> parsePriority(String value) {
+        try {
+            double priority = Double.parseDouble(value);
+            return priority >= 0 && priority <= 1 ? Optional.of(priority) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Instant parseLastmod(String value) {
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
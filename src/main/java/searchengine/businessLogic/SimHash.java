@@ -0,0 +1,72 @@
+package searchengine.businessLogic;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-битный отпечаток SimHash страницы по частотам её лемм. У страниц с почти одинаковым
+ * текстом отпечатки отличаются в небольшом количестве битов.
+ */
+public class SimHash {
+    /**
+     * Наименьшее количество разных лемм на странице, при котором отпечаток достаточно надёжен
+     */
+    public static final int MIN_LEMMAS = 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * Вычисляет отпечаток страницы
+     *
+     * @param lemmas леммы страницы и количество их упоминаний
+     * @return отпечаток или null, если на странице слишком мало лемм
+     */
+    public static Long of(LemmaCounts lemmas) {
+        if (lemmas.size() < MIN_LEMMAS) {
+            return null;
+        }
+
+        long[] weights = new long[64];
+
+        lemmas.forEach((lemma, weight) -> {
+            long hash = hash(lemma);
+
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += (hash >>> bit & 1) == 1 ? weight : -weight;
+            }
+        });
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+
+        return fingerprint;
+    }
+
+    /**
+     * Количество различающихся битов двух отпечатков
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        // перемешиваем биты, чтобы похожие леммы давали независимые отпечатки
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,135 +1,464 @@
 package searchengine.businessLogic;
 
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import org.jsoup.internal.StringUtil;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
 import searchengine.dao.Dao;
+import searchengine.dao.PageDao;
 import searchengine.dao.SiteDao;
 import searchengine.model.Site;
 import searchengine.model.Page;
 import searchengine.model.Status;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
-import java.util.concurrent.RecursiveTask;
-import java.util.concurrent.TimeUnit;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class SiteParser extends RecursiveTask<HashSet<Page>> {
-    private static boolean stop = false;
+public class SiteParser {
+    private static final PageFetcher fetcher = PageFetcher.getInstance();
     private final Dao<Site> siteDao = new SiteDao();
+    private final PageDao pageDao = new PageDao();
     private final Logger logger = LoggerFactory.getLogger(SiteParser.class);
-    private Site site;
-    private final Page page = new Page();
-
-    public SiteParser(Site site, String url) {
+    private final Site site;
+    private final String host;
+    private final PolitenessScheduler politeness;
+    private final Frontier frontier;
+    private final UrlCanonicalizer canonicalizer;
+    private final IndexingPipeline pipeline;
+    private final AtomicBoolean stalled = new AtomicBoolean();
+    private final KnownPages known;
+    private final CrawlJournal journal;
+    private final SeedDiscovery discovery;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrencyLimiter limiter;
+    private final MemoryGovernor memory;
+    private final RevisitPolicy revisits;
+    private final CrawlBudget budget;
+    private final ContentFilter filter;
+    private final AtomicInteger processedPages = new AtomicInteger();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private volatile boolean exhausted;
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final Executor workers;
+    private final CancellationToken token;
+
+    public SiteParser(Site site, CrawlScheduler scheduler, KnownPages known,
+                      IndexingPipeline pipeline, CrawlJournal journal, SeedDiscovery discovery, CrawlBudget budget,
+                      IndexingSettings settings, CancellationToken token) {
         this.site = site;
-        this.page.setPath(url);
+        this.token = token;
+        this.host = URI.create(getRoot(site.getUrl())).getHost();
+        this.politeness = scheduler.getPoliteness();
+        this.memory = scheduler.getMemory();
+        this.workers = scheduler.fetch(site.getUrl());
+        this.known = known;
+        this.pipeline = pipeline;
+        pipeline.setOnCapacity(this::onCapacity);
+        this.journal = journal;
+        this.discovery = discovery;
+        this.budget = budget;
+        // фильтр выделяется под размер сайта, а не под наибольший возможный, и растёт по мере обхода
+        long expectedUrls = Math.max(known.size(), budget.getMaxPages()) * 2L;
+        this.frontier = new Frontier(Math.min(settings.getCanonicalization().getExpectedUrls(), expectedUrls),
+                settings.getCanonicalization().getFalsePositiveRate(), known);
+        this.canonicalizer = new UrlCanonicalizer(getRoot(site.getUrl()), settings.getCanonicalization());
+        this.limiter = new ConcurrencyLimiter(settings.getConcurrency());
+        ConcurrencyLimiter.register(site.getUrl(), limiter);
+        this.revisits = new RevisitPolicy(settings.getRecrawl());
+        this.filter = new ContentFilter(settings.getFilter());
     }
 
-    public SiteParser(Site site) {
-        this(site, "/");
+    /**
+     * Обходит сайт, начиная с корневой страницы и адресов из карт сайта, в общем пуле планировщика.
+     * Новые и изменившиеся страницы сразу передаются на индексацию; уже известные страницы
+     * запрашиваются условно и, если они не изменились, пропускаются. Пути, запрещённые robots.txt,
+     * и адреса двоичных файлов не загружаются, ответы с содержимым, отличным от HTML, отбрасываются.
+     * Страницы загружаются в порядке приоритета, пока не исчерпан бюджет обхода сайта.
+     *
+     * @param checkpoint состояние прерванного обхода, с которого нужно продолжить (может быть null)
+     * @return true, если обход завершён, и false, если он был остановлен
+     */
+    public boolean parse(CrawlJournal.Checkpoint checkpoint) {
+        if (checkpoint != null && !checkpoint.getVisited().isEmpty()) {
+            logger.info("Resume parsing {}: {} paths found, {} pending",
+                    site.getUrl(), checkpoint.getVisited().size(), checkpoint.getPending().size());
+            frontier.restore(checkpoint.getVisited(), checkpoint.getPending());
+            checkpoint.getSeen().forEach(known::markSeen);
+        }
+
+        enqueue("/", 0);
+        discovery.getSeeds().keySet().forEach(path -> enqueue(path, 1));
+
+        if (frontier.isEmpty()) {
+            finished.countDown();
+        }
+
+        // при остановке обход не дожидается запросов в работе: их результаты будут отброшены
+        CancellationToken.Registration registration = token.onCancel(finished::countDown);
+        dispatch();
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            token.cancel();
+        } finally {
+            registration.close();
+        }
+
+        logger.info("Visited {} paths on {}, processed {} pages, downloaded {} bytes, visited filter takes {} bytes off heap",
+                frontier.getVisitedCount(), site.getUrl(), processedPages.get(), downloadedBytes.get(),
+                frontier.getVisitedSizeInBytes());
+        return !token.isCancelled();
     }
 
     /**
-     * Возвращает все содержащиеся страницы на текущей странице
+     * Проверяет, был ли обход прекращён из-за исчерпания бюджета, так что часть страниц сайта не посещена
      */
-    @Override
-    protected HashSet<Page> compute() {
-        HashSet<Page> result = new HashSet<>();
-        List<SiteParser> tasks = new ArrayList<>();
-        page.setSite(site);
-        HashSet<Page> pages = handle(page);
-        updateSite(null, new Date(System.currentTimeMillis()), null);
+    public boolean isExhausted() {
+        return exhausted;
+    }
 
-        if (pages == null)
-            return null;
+    private void dispatch() {
+        while (!token.isCancelled()) {
+            int current = inFlight.get();
 
-        for (Page p : pages) {
-            SiteParser task = new SiteParser(site, p.getPath());
-            task.fork();
-            tasks.add(task);
-        }
+            if (current >= memory.scale(limiter.getLimit())) {
+                return;
+            }
+
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            if (budget.isExhausted(processedPages.get(), downloadedBytes.get())) {
+                inFlight.decrementAndGet();
+                exhaust();
+                return;
+            }
+
+            // место в конвейере резервируется до загрузки, чтобы загруженная страница не ждала его в потоке пула
+            if (!reserve()) {
+                inFlight.decrementAndGet();
+                return;
+            }
+
+            Frontier.Entry entry = frontier.poll();
 
-        result.add(page);
+            if (entry == null) {
+                pipeline.release();
+                inFlight.decrementAndGet();
+                return;
+            }
 
-        for (SiteParser task : tasks) {
-            result.add(task.page);
+            processedPages.incrementAndGet();
+            Page cached = known.get(entry.path());
 
-            HashSet<Page> taskResult = task.join();
-            if (taskResult != null) {
-                result.addAll(taskResult);
+            if (cached != null && discovery.isUnchanged(entry.path(), cached.getLastModified())) {
+                workers.execute(() -> skip(cached, entry.depth()));
+            } else {
+                politeness.execute(host, workers, () -> process(entry));
             }
         }
+    }
 
-        return result;
+    private boolean reserve() {
+        if (pipeline.tryReserve()) {
+            return true;
+        }
+
+        stalled.set(true);
+
+        // место могло освободиться до установки признака, и тогда обход не был бы возобновлён
+        if (!pipeline.tryReserve()) {
+            return false;
+        }
+
+        stalled.set(false);
+        return true;
+    }
+
+    private void onCapacity() {
+        if (stalled.compareAndSet(true, false)) {
+            workers.execute(this::dispatch);
+        }
+    }
+
+    private void exhaust() {
+        if (!frontier.isEmpty()) {
+            logger.info("Crawl budget of {} is exhausted: {} pages, {} bytes",
+                    site.getUrl(), processedPages.get(), downloadedBytes.get());
+            exhausted = true;
+        }
+
+        if (frontier.drain() == 0) {
+            finished.countDown();
+        }
+    }
+
+    private void process(Frontier.Entry entry) {
+        String path = entry.path();
+
+        if (token.isCancelled()) {
+            complete();
+            return;
+        }
+
+        Page page = new Page();
+        page.setSite(site);
+        page.setPath(path);
+
+        Page cached = known.get(path);
+        String etag = cached == null ? null : cached.getEtag();
+        String lastModified = cached == null ? null : cached.getLastModified();
+
+        long started = System.nanoTime();
+
+        fetcher.fetchAsync(getUrl(page), etag, lastModified, filter, token)
+                .thenAcceptAsync(result -> {
+                    if (token.isCancelled()) {
+                        complete();
+                        return;
+                    }
+
+                    limiter.onResponse(System.nanoTime() - started, isOverloaded(result));
+
+                    try {
+                        Outcome outcome = handle(page, result, entry);
+
+                        if (outcome == Outcome.RETRY) {
+                            return;
+                        }
+
+                        updateSite(null, new Date(System.currentTimeMillis()), null);
+
+                        if (outcome == Outcome.ACCEPTED) {
+                            finishSlot();
+                            return;
+                        }
+                    } catch (Exception e) {
+                        logger.error("Failed to process {}{}: {}", site.getUrl(), path, e.getMessage());
+                    }
+
+                    complete();
+                }, workers);
+    }
+
+    /**
+     * Пропускает известную страницу, которая по карте сайта не менялась, не обращаясь к хосту
+     */
+    private void skip(Page cached, int depth) {
+        try {
+            markUnchanged(cached, false, depth);
+        } catch (Exception e) {
+            logger.error("Failed to process {}{}: {}", site.getUrl(), cached.getPath(), e.getMessage());
+        }
+
+        complete();
+    }
+
+    private void markUnchanged(Page cached, boolean fetched, int depth) {
+        if (fetched) {
+            revisits.onFetched(cached, cached, false);
+            pageDao.updateSchedule(cached);
+        }
+
+        known.markSeen(cached.getPath());
+        pageDao.get(cached.getId()).ifPresent(page -> addLinks(page, depth + 1));
+        journal.fetched(cached.getPath(), true);
+    }
+
+    /**
+     * Завершает обработку пути, освобождая зарезервированное место в конвейере
+     */
+    private void complete() {
+        pipeline.release();
+        finishSlot();
+    }
+
+    /**
+     * Завершает обработку пути, место которого в конвейере занято принятой страницей
+     */
+    private void finishSlot() {
+        inFlight.decrementAndGet();
+
+        if (frontier.complete() == 0 || token.isCancelled()) {
+            finished.countDown();
+        } else {
+            dispatch();
+        }
     }
 
     /**
      * Парсинг страницы сайта
      *
      * @param page - страница сайта
+     * @return результат загрузки страницы
+     */
+    public static FetchResult parsePage(Page page) {
+        return parsePage(page, null);
+    }
+
+    /**
+     * Парсинг страницы сайта с фильтрацией содержимого
+     *
+     * @param page   - страница сайта
+     * @param filter - фильтр содержимого (может быть null)
+     * @return результат загрузки страницы
      */
-    public static void parsePage(Page page) {
+    public static FetchResult parsePage(Page page, ContentFilter filter) {
+        FetchResult result = fetcher.fetchAsync(getUrl(page), null, null, filter).join();
+        applyResult(page, result);
+        return result;
+    }
+
+    static void applyResult(Page page, FetchResult result) {
+        if (result.isFailed()) {
+            page.setCode(getErrorResponseCode(result.getError()));
+            page.getSite().setLastError(result.getError());
+            return;
+        }
+
+        page.setCode(result.getStatusCode());
+
+        if (result.getStatusCode() >= 400) {
+            page.getSite().setLastError("HTTP error fetching URL. Status=" + result.getStatusCode() + ", URL=" + result.getUrl());
+            return;
+        }
+
+        if (result.isSkipped()) {
+            return;
+        }
+
+        String content = new String(result.getBody(), HtmlScanner.detectCharset(result.getBody(), result.getCharset()));
+        page.setContent(content.startsWith("\uFEFF") ? content.substring(1) : content);
+        PageDocument.parse(page.getContent()).applyTo(page);
+        page.setEtag(result.header("ETag"));
+        page.setLastModified(result.header("Last-Modified"));
+        page.setContentHash(hash(result.getBody()));
+    }
+
+    private static String hash(byte[] body) {
         try {
-            Connection.Response response = Jsoup.connect(getRoot(page.getSite().getUrl()) + page.getPath())
-                    .userAgent("BobTheSearcherBot")
-                    .referrer("http://www.google.com")
-                    .timeout(60000)
-                    .execute();
-            TimeUnit.MILLISECONDS.sleep(500);
-
-            Document doc = response.parse();
-            String content = doc.html();
-
-            page.setContent(content);
-            page.setCode(response.statusCode());
-        } catch (Exception e) {
-            page.setCode(getErrorResponseCode(e.getMessage()));
-            page.getSite().setLastError(e.getMessage());
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
-    private HashSet<Page> handle(Page page) {
-        if (stop) {
-            stop();
-            return null;
+    static String getUrl(Page page) {
+        return getRoot(page.getSite().getUrl()) + page.getPath();
+    }
+
+    /**
+     * Обрабатывает загруженную страницу и добавляет найденные на ней ссылки в очередь
+     *
+     * @param page   страница сайта
+     * @param result результат загрузки страницы
+     * @param entry  путь страницы в очереди обхода
+     * @return результат обработки
+     */
+    private Outcome handle(Page page, FetchResult result, Frontier.Entry entry) {
+        Page cached = known.get(page.getPath());
+
+        if (result.getBody() != null) {
+            downloadedBytes.addAndGet(result.getBody().length);
+        }
+
+        if (cached != null && !result.isFailed() && result.getStatusCode() == 304) {
+            markUnchanged(cached, true, entry.depth());
+            return Outcome.DONE;
+        }
+
+        applyResult(page, result);
+
+        if (!result.isFailed() && isThrottled(result.getStatusCode())) {
+            int attempt = attempts.merge(page.getPath(), 1, Integer::sum) - 1;
+
+            if (attempt < politeness.getMaxRetries()) {
+                politeness.backoff(host, result.header("Retry-After"), attempt);
+                politeness.execute(host, workers, () -> process(entry));
+                return Outcome.RETRY;
+            }
         }
 
-        HashSet<Page> result = new HashSet<>();
-        parsePage(page);
+        if (result.isSkipped()) {
+            logger.debug("Skipped {}: {}", result.getUrl(), result.getSkipReason());
+        }
 
         if (StringUtil.isBlank(page.getContent())) {
-            return null;
+            journal.fetched(page.getPath(), false);
+            return Outcome.DONE;
         }
 
-        HashSet<String> hrefs = getValidHrefs(page);
-        for (String href : hrefs) {
-            Page p = new Page();
-            p.setPath(href);
-            result.add(p);
+        known.markSeen(page.getPath());
+        addLinks(page, entry.depth() + 1);
+
+        if (cached == null || !Objects.equals(cached.getContentHash(), page.getContentHash())) {
+            revisits.onFetched(page, cached, true);
+            pipeline.accept(page);
+            return Outcome.ACCEPTED;
         }
 
-        return result;
+        revisits.onFetched(cached, cached, false);
+        pageDao.updateSchedule(cached);
+        journal.fetched(page.getPath(), true);
+        return Outcome.DONE;
     }
 
-    public void setStop(boolean value) {
-        stop = value;
+    /**
+     * Результат обработки загруженной страницы
+     */
+    private enum Outcome {
+        /**
+         * Страница обработана
+         */
+        DONE,
+        /**
+         * Страница передана на индексацию и занимает зарезервированное место в конвейере
+         */
+        ACCEPTED,
+        /**
+         * Хост попросил повторить запрос позже, и страница снова запланирована
+         */
+        RETRY
+    }
+
+    private void addLinks(Page page, int depth) {
+        if (!budget.isDepthAllowed(depth)) {
+            return;
+        }
+
+        for (String path : getValidPaths(page)) {
+            enqueue(path, depth);
+        }
     }
 
-    private boolean isValidPath(String path, Page page) {
-        return !path.equals(page.getPath()) && path.startsWith(page.getPath()) && !path.contains("#");
+    private void enqueue(String path, int depth) {
+        if (filter.isAllowedPath(path) && discovery.getRules().isAllowed(path) && frontier.add(path, depth, discovery.getPriority(path))) {
+            journal.queued(path);
+        }
+    }
+
+    static boolean isThrottled(int code) {
+        return code == 429 || code == 503;
+    }
+
+    private static boolean isOverloaded(FetchResult result) {
+        return result.isFailed() || result.getStatusCode() >= 500 || isThrottled(result.getStatusCode());
     }
 
     private static int getErrorResponseCode(String httpErrorMessage) {
-        if (!httpErrorMessage.toLowerCase().contains("status")) {
+        if (httpErrorMessage == null || !httpErrorMessage.toLowerCase().contains("status")) {
             return 408;
         }
 
@@ -154,7 +483,7 @@ public class SiteParser extends RecursiveTask<HashSet<Page>> {
         siteDao.update(site);
     }
 
-    private static String getRoot(String url) {
+    static String getRoot(String url) {
         Pattern urlPattern = Pattern.compile("(?<root>https?://[^/]+)(?<path>.+)?");
         Matcher matcher = urlPattern.matcher(url);
 
@@ -165,18 +494,17 @@ public class SiteParser extends RecursiveTask<HashSet<Page>> {
         return url;
     }
 
-    private void stop() {
-        logger.info("User stop the parsing");
-        String error = "Индексация остановлена пользователем";
-        updateSite(Status.FAILED, null, error);
-    }
+    private Set<String> getValidPaths(Page page) {
+        String base = getUrl(page);
+        Set<String> paths = new HashSet<>();
+
+        for (String href : PageDocument.of(page).getLinks()) {
+            String path = canonicalizer.canonicalize(base, href);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
 
-    private HashSet<String> getValidHrefs(Page page) {
-        Document doc = Jsoup.parse(page.getContent());
-        Elements elements = doc.select("a");
-        HashSet<String> hrefs = new HashSet<>();
-        elements.forEach(element -> hrefs.add(element.attr("href")));
-        hrefs.removeIf(href -> !this.isValidPath(href, page));
-        return hrefs;
+        return paths;
     }
 }
@@ -1,28 +1,42 @@
 package searchengine.businessLogic;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import searchengine.config.IndexingSettings;
 import searchengine.dao.*;
 import searchengine.model.*;
 import searchengine.services.IndexingServiceImpl;
 
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RequiredArgsConstructor
 public class SiteParserHandler implements Runnable {
+    private static final Map<String, Long> stopLatencies = new ConcurrentHashMap<>();
+    @Getter
     private searchengine.config.Site site;
     private SiteParser parser;
+    private CrawlScheduler scheduler;
+    private IndexingSettings settings;
     private final SiteDao siteDao = new SiteDao();
-    private final LemmaDao lemmaDao = new LemmaDao();
-    private final IndexDao indexDao = new IndexDao();
     private final PageDao pageDao = new PageDao();
-    private boolean stop = false;
+    private final CancellationToken token = new CancellationToken();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    /**
+     * Время от запроса остановки до её завершения, мс; -1, если индексация не останавливалась
+     */
+    @Getter
+    private volatile long stopLatency = -1;
     private final Logger logger = LoggerFactory.getLogger(SiteParser.class);
 
-    public SiteParserHandler(searchengine.config.Site site) {
+    public SiteParserHandler(searchengine.config.Site site, CrawlScheduler scheduler, IndexingSettings settings) {
         this.site = site;
+        this.scheduler = scheduler;
+        this.settings = settings;
     }
 
     /**
@@ -30,12 +44,15 @@ public class SiteParserHandler implements Runnable {
      */
     @Override
     public void run() {
+        CrawlJournal journal = null;
+
         try {
             logger.info("Start parsing: {}", site.getUrl());
             long start = System.currentTimeMillis();
             Site s = siteDao.get(createSiteInstance(site)).orElse(null);
+            KnownPages known = KnownPages.empty();
             if (s != null) {
-                deleteSiteIndexedData(s);
+                known = new KnownPages(s, pageDao.getValidatorsBySite(s));
                 s.setStatus(Status.INDEXING);
                 s.setStatusTime(new Date(System.currentTimeMillis()));
             } else {
@@ -43,113 +60,135 @@ public class SiteParserHandler implements Runnable {
             }
 
             siteDao.saveOrUpdate(s);
-            HashSet<Page> pages = getPagesFromSite(s);
-
-            if (pages != null) {
+            journal = CrawlJournal.open(settings.getJournal(), site.getUrl());
+            CrawlJournal.Checkpoint checkpoint = journal.hasCheckpoint() ? journal.read() : null;
+            PageIndexer indexer = new PageIndexer(s);
+            // иначе отвязанная копия была бы пропущена при этом же обходе по прежним ETag или хешу содержимого
+            indexer.setOnRelease(known::release);
+            IndexingPipeline pipeline = new IndexingPipeline(indexer, scheduler, settings.getPipeline(),
+                    journal, token);
+
+            SeedDiscovery discovery = SeedDiscovery.discover(SiteParser.getRoot(site.getUrl()), settings,
+                    scheduler.getPoliteness(), token);
+
+            if (!token.isCancelled() && parseSite(s, known, pipeline, journal, checkpoint, discovery)) {
                 logger.info("Start saving pages:\t{}", site.getUrl());
-                indexPages(pages, s);
+                pipeline.finish();
                 logger.info("End saving pages:\t{}", site.getUrl());
-                logger.info("Start saving lemmas:\t{}", site.getUrl());
-                saveAndClearCurrentSiteLemmas(PageIndexer.getLemmas(), s);
-                logger.info("End saving lemmas:\t{}", site.getUrl());
-                logger.info("Start saving indexes: {}", site.getUrl());
-                saveAndClearCurrentSiteIndexes(PageIndexer.getIndexes(), s);
-                logger.info("End saving indexes:\t{}", site.getUrl());
+
+                // при исчерпании бюджета непосещённые страницы не считаются удалёнными с сайта
+                if (!parser.isExhausted() && !token.isCancelled()) {
+                    logger.info("Start deleting stale pages:\t{}", site.getUrl());
+                    deleteStalePages(known, pipeline.getIndexer());
+                    logger.info("End deleting stale pages:\t{}", site.getUrl());
+                }
+
+                journal.delete();
+            } else {
+                pipeline.cancel();
+                scheduler.purge(s.getUrl());
+
+                if (!pipeline.awaitPersisted(settings.getScheduler().getStopTimeout())) {
+                    // остановка не ждёт дольше отведённого времени: незавершённая запись откатывается
+                    pipeline.abort();
+                    logger.warn("Saving pages of {} did not finish in time after stop, rolling back",
+                            site.getUrl());
+                }
+
+                journal.close();
             }
 
-            if (stop) return;
+            if (token.isCancelled()) {
+                onStopped(s);
+                return;
+            }
+
+            if (pipeline.getFailedPages() > 0) {
+                s.setStatus(Status.FAILED);
+                s.setStatusTime(new Date(System.currentTimeMillis()));
+                s.setLastError("Не удалось сохранить страниц: " + pipeline.getFailedPages() + ". " + pipeline.getError());
+            } else {
+                s.setStatus(Status.INDEXED);
+            }
 
-            s.setStatus(Status.INDEXED);
             siteDao.saveOrUpdate(s);
             logger.info("End parsing: {}. It took {} ms", site.getUrl(), (System.currentTimeMillis() - start));
             IndexingServiceImpl.setStarted(false);
         } catch (Exception e) {
             e.printStackTrace();
+
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            stopped.countDown();
         }
     }
 
     /**
-     * Останавливает полную индексацю сайта.
+     * Останавливает полную индексацю сайта: обрывает открытые запросы и отбрасывает страницы,
+     * ожидающие лемматизации или записи в БД.
      */
     public void stopParsing() {
-        stop = true;
-        parser.setStop(true);
+        token.cancel();
     }
 
-    private synchronized void deleteSiteIndexedData(Site site) {
-        List<Page> pages = pageDao.getAllBySite(site).orElse(new ArrayList<>());
-        List<Lemma> lemmas = lemmaDao.getAll().orElse(new ArrayList<>())
-                .stream()
-                .filter(l -> l.getSite().equals(site))
-                .toList();
-        List<Index> indexes = indexDao.getAll().orElse(new ArrayList<>())
-                .stream()
-                .filter(i -> pages.stream().anyMatch(p -> p.getId() == i.getPage().getId()))
-                .toList();
-
-        indexDao.delete(indexes.stream().map(Index::getId).toArray());
-        lemmaDao.delete(lemmas.stream().map(Lemma::getId).toArray());
-        pageDao.delete(pages.stream().map(Page::getId).toArray());
-    }
-
-    private Site createSiteInstance(searchengine.config.Site site) {
-        Site s = new Site();
-        s.setStatus(Status.INDEXING);
-        s.setStatusTime(new Date(System.currentTimeMillis()));
-        s.setLastError(null);
-        s.setUrl(site.getUrl());
-        s.setName(site.getName());
-        return s;
+    /**
+     * Возвращает время последней остановки индексации сайта пользователем для отображения в статистике
+     *
+     * @param siteUrl адрес сайта
+     * @return время от запроса остановки до её завершения, мс, или -1, если индексация не останавливалась
+     */
+    public static long getStopLatency(String siteUrl) {
+        return stopLatencies.getOrDefault(siteUrl, -1L);
     }
 
-    private HashSet<Page> getPagesFromSite(Site site) {
-        this.parser = new SiteParser(site);
-        this.parser.setStop(false);
-        return new ForkJoinPool().invoke(parser);
+    /**
+     * Дожидается завершения индексации сайта
+     *
+     * @param timeout наибольшее время ожидания, мс
+     * @return true, если индексация завершена
+     */
+    public boolean awaitStopped(long timeout) throws InterruptedException {
+        return stopped.await(timeout, TimeUnit.MILLISECONDS);
     }
 
-    private void executorShutdown(ExecutorService executor) {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(800, TimeUnit.MILLISECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-        }
+    private void onStopped(Site s) {
+        stopLatency = token.getMillisSinceCancel();
+        stopLatencies.put(site.getUrl(), stopLatency);
+        logger.info("Parsing of {} stopped in {} ms", site.getUrl(), stopLatency);
+        s.setStatus(Status.FAILED);
+        s.setStatusTime(new Date(System.currentTimeMillis()));
+        s.setLastError("Индексация остановлена пользователем");
+        siteDao.saveOrUpdate(s);
     }
 
-    private void indexPages(HashSet<Page> pages, Site site) {
-        pages.removeIf(page -> page.getContent() == null);
-        site.setPages(pages);
-
-        ExecutorService executor = Executors.newFixedThreadPool(16);
-        List<PageIndexer> pageIndexers = new ArrayList<>();
-
-        for (Page page : pages) {
-            pageIndexers.add(new PageIndexer(site, page));
-        }
-
-        try {
-            List<Future<Integer>> futures = executor.invokeAll(pageIndexers);
-        } catch (InterruptedException e) {
-            logger.error(e.getMessage());
+    /**
+     * Удаляет из индекса страницы, которые были проиндексированы раньше, но при текущем обходе
+     * не найдены или вернули ошибку.
+     */
+    private void deleteStalePages(KnownPages known, PageIndexer indexer) {
+        for (Page page : known.getUnseen()) {
+            indexer.delete(page);
         }
 
-        executorShutdown(executor);
+        indexer.deleteUnusedLemmas();
     }
 
-    private void saveAndClearCurrentSiteLemmas(Map<String, Lemma> lemmasMap, searchengine.model.Site site) {
-        List<Lemma> lemmas = lemmasMap.values().stream()
-                .filter(l -> l.getSite().getId() == site.getId()).toList();
-        lemmaDao.saveOrUpdateBatch(lemmas);
-        lemmasMap.entrySet().removeIf(e -> e.getValue().getSite().getId() == site.getId());
+    private Site createSiteInstance(searchengine.config.Site site) {
+        Site s = new Site();
+        s.setStatus(Status.INDEXING);
+        s.setStatusTime(new Date(System.currentTimeMillis()));
+        s.setLastError(null);
+        s.setUrl(site.getUrl());
+        s.setName(site.getName());
+        return s;
     }
 
-    private void saveAndClearCurrentSiteIndexes(Collection<Index> indexes, searchengine.model.Site site) {
-        List<Index> indexList = indexes.stream()
-                .filter(index -> index.getPage().getSite().getId() == site.getId()).toList();
-        indexDao.saveOrUpdateBatch(indexList);
-        indexes.removeIf(i -> i.getPage().getSite().getId() == site.getId());
+    private boolean parseSite(Site site, KnownPages known, IndexingPipeline pipeline,
+                              CrawlJournal journal, CrawlJournal.Checkpoint checkpoint, SeedDiscovery discovery) {
+        this.parser = new SiteParser(site, scheduler, known, pipeline, journal, discovery,
+                CrawlBudget.of(this.site, settings.getBudget()), settings, token);
+        return parser.parse(checkpoint);
     }
 }
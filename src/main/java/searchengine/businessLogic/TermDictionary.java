@@ -0,0 +1,102 @@
+package searchengine.businessLogic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.dao.TermDao;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий для всех сайтов словарь нормальных форм слов с постоянными числовыми идентификаторами.
+ * Словарь загружается из БД при первом обращении; поиск идентификатора не блокирует потоки,
+ * а новые слова добавляются в БД пачкой, так что параллельные процессы получают одинаковые идентификаторы.
+ */
+public class TermDictionary {
+    private static volatile TermDictionary instance;
+    private final Logger logger = LoggerFactory.getLogger(TermDictionary.class);
+    private final TermDao termDao = new TermDao();
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает singleton экземпляр класса TermDictionary, загружая словарь при первом обращении
+     * @return экземпляр класса TermDictionary
+     */
+    public static TermDictionary getInstance() {
+        TermDictionary localInstance = instance;
+        if (localInstance == null) {
+            synchronized (TermDictionary.class) {
+                localInstance = instance;
+                if (localInstance == null) {
+                    instance = localInstance = new TermDictionary();
+                }
+            }
+        }
+        return localInstance;
+    }
+
+    private TermDictionary() {
+        long started = System.currentTimeMillis();
+        termDao.forEach(ids::put);
+        logger.info("Loaded {} terms in {} ms", ids.size(), System.currentTimeMillis() - started);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Возвращает идентификаторы слов, которые есть в словаре. Слова, которых нет в памяти,
+     * ищутся в БД: их могли добавить другие процессы.
+     *
+     * @param texts слова
+     * @return идентификаторы по тексту слова
+     */
+    public Map<String, Integer> find(Collection<String> texts) {
+        Map<String, Integer> found = new HashMap<>();
+        List<String> missing = collect(texts, found);
+
+        if (!missing.isEmpty()) {
+            Map<String, Integer> loaded = termDao.getIds(missing);
+            ids.putAll(loaded);
+            found.putAll(loaded);
+        }
+
+        return found;
+    }
+
+    /**
+     * Возвращает идентификаторы слов, добавляя отсутствующие слова в словарь
+     *
+     * @param texts слова
+     * @return идентификаторы по тексту слова
+     */
+    public Map<String, Integer> getOrCreate(Collection<String> texts) {
+        Map<String, Integer> found = new HashMap<>();
+        List<String> missing = collect(texts, found);
+
+        if (!missing.isEmpty()) {
+            Map<String, Integer> created = termDao.insertMissing(missing);
+            ids.putAll(created);
+            found.putAll(created);
+        }
+
+        return found;
+    }
+
+    private List<String> collect(Collection<String> texts, Map<String, Integer> found) {
+        List<String> missing = new ArrayList<>();
+
+        for (String text : texts) {
+            Integer id = ids.get(text);
+
+            if (id == null) {
+                missing.add(text);
+            } else {
+                found.put(text, id);
+            }
+        }
+
+        return missing;
+    }
+}
@@ -0,0 +1,92 @@
+package searchengine.businessLogic;
+
+import java.util.Arrays;
+
+/**
+ * Разбивает текст на слова за один проход без копирования всего текста: буквы приводятся к нижнему регистру
+ * по мере чтения, а слово заканчивается на любом символе, кроме буквы той же письменности.
+ * Строка создаётся только для слов не короче заданной длины.
+ */
+public final class Tokenizer {
+    /**
+     * Письменность слова, по которой выбирается словарь
+     */
+    public enum Script {
+        ENGLISH, RUSSIAN
+    }
+
+    /**
+     * Получатель найденных слов
+     */
+    @FunctionalInterface
+    public interface WordConsumer {
+        void accept(String word, Script script);
+    }
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Передаёт получателю слова текста из латинских или русских букв
+     *
+     * @param text      текст
+     * @param minLength наименьшая длина слова; более короткие слова пропускаются
+     * @param consumer  получатель слов
+     */
+    public static void tokenize(CharSequence text, int minLength, WordConsumer consumer) {
+        char[] buffer = new char[32];
+        int length = 0;
+        Script current = null;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? toLowerCase(text.charAt(i)) : ' ';
+            Script script = getScript(c);
+
+            if (script != current || script == null) {
+                if (current != null && length >= minLength) {
+                    consumer.accept(new String(buffer, 0, length), current);
+                }
+
+                length = 0;
+                current = script;
+            }
+
+            if (script != null) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+
+                buffer[length++] = c;
+            }
+        }
+    }
+
+    private static char toLowerCase(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+
+        if (c >= 'А' && c <= 'Я') {
+            return (char) (c + ('а' - 'А'));
+        }
+
+        // словарь не содержит буквы ё
+        if (c == 'ё' || c == 'Ё') {
+            return 'е';
+        }
+
+        return c;
+    }
+
+    private static Script getScript(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return Script.ENGLISH;
+        }
+
+        if (c >= 'а' && c <= 'я') {
+            return Script.RUSSIAN;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,174 @@
+package searchengine.businessLogic;
+
+import searchengine.config.IndexingSettings;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Приводит ссылки сайта к единому виду, чтобы одна и та же страница не загружалась под разными адресами:
+ * разрешает относительные ссылки, отбрасывает ссылки на другие хосты, фрагменты и параметры отслеживания,
+ * убирает точечные сегменты, повторяющиеся и завершающий слеши, сортирует параметры запроса.
+ */
+public class UrlCanonicalizer {
+    private static final Pattern PERCENT_ENCODED = Pattern.compile("%[0-9a-fA-F]{2}");
+    private final String root;
+    private final String host;
+    private final List<String> trackingParams = new ArrayList<>();
+    private final List<String> trackingPrefixes = new ArrayList<>();
+    private final boolean lowercasePath;
+
+    /**
+     * @param root     корень сайта, например https://example.com
+     * @param settings правила приведения адресов
+     */
+    public UrlCanonicalizer(String root, IndexingSettings.Canonicalization settings) {
+        this.root = root;
+        this.host = stripWww(URI.create(root).getHost());
+        this.lowercasePath = settings.isLowercasePath();
+
+        for (String param : settings.getTrackingParams()) {
+            String name = param.trim().toLowerCase(Locale.ROOT);
+
+            if (name.endsWith("*")) {
+                trackingPrefixes.add(name.substring(0, name.length() - 1));
+            } else if (!name.isEmpty()) {
+                trackingParams.add(name);
+            }
+        }
+    }
+
+    /**
+     * Приводит к единому виду путь или адрес страницы сайта
+     *
+     * @param url путь от корня сайта или абсолютный адрес
+     * @return путь с параметрами запроса или null, если адрес ведёт за пределы сайта
+     */
+    public String canonicalize(String url) {
+        return canonicalize(root + "/", url);
+    }
+
+    /**
+     * Приводит к единому виду ссылку, найденную на странице
+     *
+     * @param base адрес страницы, на которой найдена ссылка
+     * @param href значение атрибута href
+     * @return путь с параметрами запроса или null, если ссылка ведёт за пределы сайта или некорректна
+     */
+    public String canonicalize(String base, String href) {
+        String value = href.trim().replace(" ", "%20");
+
+        if (value.isEmpty()) {
+            return null;
+        }
+
+        URI uri;
+        try {
+            URI baseUri = URI.create(base);
+
+            // URI разрешает ссылки по RFC 2396, где ссылка из одного запроса ведёт в каталог страницы;
+            // по RFC 3986, как и в браузерах, она ведёт на саму страницу
+            if (value.startsWith("?")) {
+                String path = baseUri.getRawPath();
+                value = (path == null || path.isEmpty() ? "/" : path) + value;
+            }
+
+            uri = baseUri.resolve(value).normalize();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+            return null;
+        }
+
+        if (uri.getHost() == null || !host.equals(stripWww(uri.getHost()))) {
+            return null;
+        }
+
+        String path = normalizePath(uri.getRawPath());
+        String query = filterQuery(uri.getRawQuery());
+        return query == null ? path : path + "?" + query;
+    }
+
+    private String normalizePath(String rawPath) {
+        if (rawPath == null || rawPath.isEmpty()) {
+            return "/";
+        }
+
+        String path = rawPath.replaceAll("/{2,}", "/");
+
+        while (path.startsWith("/../") || path.equals("/..")) {
+            path = path.substring(3);
+        }
+
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        path = upperCasePercentEncoding(path);
+
+        if (lowercasePath) {
+            path = path.toLowerCase(Locale.ROOT);
+        }
+
+        return path.isEmpty() ? "/" : path;
+    }
+
+    private String filterQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+
+        List<String> params = new ArrayList<>();
+
+        for (String param : rawQuery.split("&")) {
+            if (!param.isEmpty() && !isTracking(param)) {
+                params.add(upperCasePercentEncoding(param));
+            }
+        }
+
+        if (params.isEmpty()) {
+            return null;
+        }
+
+        params.sort(null);
+        return String.join("&", params);
+    }
+
+    private boolean isTracking(String param) {
+        int eq = param.indexOf('=');
+        String name = (eq < 0 ? param : param.substring(0, eq)).toLowerCase(Locale.ROOT);
+
+        if (trackingParams.contains(name)) {
+            return true;
+        }
+
+        for (String prefix : trackingPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String upperCasePercentEncoding(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+
+        Matcher matcher = PERCENT_ENCODED.matcher(value);
+        return matcher.replaceAll(match -> match.group().toUpperCase(Locale.ROOT));
+    }
+
+    private static String stripWww(String host) {
+        String value = host.toLowerCase(Locale.ROOT);
+        return value.startsWith("www.") ? value.substring(4) : value;
+    }
+}
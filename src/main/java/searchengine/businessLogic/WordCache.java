@@ -0,0 +1,125 @@
+package searchengine.businessLogic;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш нормальных форм слов ограниченного размера с вытеснением segmented LRU, приближённым алгоритмом CLOCK.
+ * Чтение не берёт блокировок и не перестраивает списки: оно только отмечает, что к слову обращались.
+ * Новое слово попадает в испытательную очередь и при вытеснении переходит в защищённую, только если к нему
+ * обращались повторно, поэтому однократно встреченные слова (например, при индексации большого сайта
+ * с редкими словами) вытесняют друг друга, а не частые слова.
+ */
+public class WordCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * Очереди слов в порядке добавления; изменяются только при добавлении слова под блокировкой кеша
+     */
+    private final Queue<String> probation = new ArrayDeque<>();
+    private final Queue<String> protectedEntries = new ArrayDeque<>();
+    private final int capacity;
+    private final int protectedCapacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity наибольшее количество слов в кеше
+     */
+    public WordCache(int capacity) {
+        this.capacity = Math.max(2, capacity);
+        this.protectedCapacity = Math.max(1, this.capacity * 4 / 5);
+    }
+
+    /**
+     * Возвращает значение, сохранённое для слова
+     *
+     * @param word слово
+     * @return значение или null, если слова нет в кеше
+     */
+    public String get(String word) {
+        Entry entry = entries.get(word);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+
+        // запись только при первом обращении, чтобы частые слова не перезаписывали общую память при каждом чтении
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Сохраняет значение для слова. Блокировка берётся только здесь, то есть после поиска
+     * нормальной формы в словаре, который намного дороже.
+     *
+     * @param word  слово
+     * @param value значение
+     */
+    public synchronized void put(String word, String value) {
+        if (entries.putIfAbsent(word, new Entry(value)) != null) {
+            return;
+        }
+
+        probation.add(word);
+        evict();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        while (entries.size() > capacity) {
+            if (protectedEntries.size() > protectedCapacity) {
+                String word = protectedEntries.poll();
+                Entry entry = entries.get(word);
+
+                // защищённое слово, к которому обращались, получает ещё один круг, остальные возвращаются в испытательную
+                if (entry.referenced) {
+                    entry.referenced = false;
+                    protectedEntries.add(word);
+                } else {
+                    probation.add(word);
+                }
+
+                continue;
+            }
+
+            String word = probation.poll();
+            Entry entry = entries.get(word);
+
+            if (entry.referenced) {
+                entry.referenced = false;
+                protectedEntries.add(word);
+            } else {
+                entries.remove(word);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String value;
+        private volatile boolean referenced;
+
+        Entry(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings")
+public class IndexingSettings {
+    private Politeness politeness = new Politeness();
+    private Scheduler scheduler = new Scheduler();
+    private Pipeline pipeline = new Pipeline();
+    private Journal journal = new Journal();
+    private Discovery discovery = new Discovery();
+    private Canonicalization canonicalization = new Canonicalization();
+    private Concurrency concurrency = new Concurrency();
+    private Recrawl recrawl = new Recrawl();
+    private Budget budget = new Budget();
+    private Filter filter = new Filter();
+    private Distributed distributed = new Distributed();
+    private Memory memory = new Memory();
+
+    @Getter
+    @Setter
+    public static class Politeness {
+        /**
+         * Количество запросов в секунду к одному хосту
+         */
+        private double rate = 2.0;
+        /**
+         * Количество запросов, которое можно выполнить подряд без ожидания
+         */
+        private int burst = 5;
+        /**
+         * Количество повторных запросов после ответов 429 и 503
+         */
+        private int maxRetries = 3;
+        /**
+         * Максимальная пауза перед повторным запросом, мс
+         */
+        private long maxBackoff = 60000;
+    }
+
+    @Getter
+    @Setter
+    public static class Scheduler {
+        /**
+         * Количество потоков обработки загруженных страниц для всех сайтов
+         */
+        private int fetchThreads = 2 * Runtime.getRuntime().availableProcessors();
+        /**
+         * Количество потоков лемматизации для всех сайтов
+         */
+        private int cpuThreads = Runtime.getRuntime().availableProcessors();
+        /**
+         * Количество потоков записи в БД для всех сайтов
+         */
+        private int dbThreads = 4;
+        /**
+         * Количество сайтов, обходимых одновременно; остальные ждут в очереди
+         */
+        private int siteThreads = Runtime.getRuntime().availableProcessors();
+        /**
+         * Наибольшее время ожидания остановки индексации, мс; по его истечении потоки индексации прерываются
+         */
+        private long stopTimeout = 10000;
+    }
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /**
+         * Количество страниц сайта, принятых на индексацию, но ещё не сохранённых
+         */
+        private int queueCapacity = 64;
+        /**
+         * Количество страниц, сохраняемых в одной транзакции
+         */
+        private int batchSize = 20;
+    }
+
+    @Getter
+    @Setter
+    public static class Journal {
+        /**
+         * Сохранять ли состояние обхода для продолжения после остановки или перезапуска
+         */
+        private boolean enabled = true;
+        /**
+         * Каталог с журналами обхода
+         */
+        private String directory = "crawl-journal";
+        /**
+         * Интервал записи журнала на диск, мс
+         */
+        private long flushInterval = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Discovery {
+        /**
+         * Читать ли robots.txt и карты сайта перед обходом
+         */
+        private boolean enabled = true;
+        /**
+         * Максимальное количество читаемых файлов карт сайта
+         */
+        private int maxSitemaps = 50;
+        /**
+         * Максимальное количество адресов, добавляемых в очередь из карт сайта
+         */
+        private int maxUrls = 50000;
+    }
+
+    @Getter
+    @Setter
+    public static class Canonicalization {
+        /**
+         * Параметры запроса, которые отбрасываются при сравнении адресов. Звёздочка в конце задаёт префикс.
+         */
+        private List<String> trackingParams = new ArrayList<>(List.of(
+                "utm_*", "fbclid", "gclid", "yclid", "_openstat", "mc_cid", "mc_eid"));
+        /**
+         * Приводить ли путь к нижнему регистру. Включайте только для сайтов, не различающих регистр адресов.
+         */
+        private boolean lowercasePath = false;
+        /**
+         * Наибольший начальный размер фильтра найденных адресов сайта; при необходимости фильтр растёт
+         */
+        private long expectedUrls = 20_000_000;
+        /**
+         * Допустимая доля новых адресов, ошибочно принятых фильтром за уже найденные
+         */
+        private double falsePositiveRate = 0.001;
+    }
+
+    @Getter
+    @Setter
+    public static class Concurrency {
+        /**
+         * Начальный предел одновременных запросов к одному сайту
+         */
+        private int initial = 4;
+        /**
+         * Наименьший предел одновременных запросов
+         */
+        private int min = 1;
+        /**
+         * Наибольший предел одновременных запросов
+         */
+        private int max = 32;
+        /**
+         * Время ответа, мс, начиная с которого сайт считается перегруженным
+         */
+        private long slowResponse = 5000;
+        /**
+         * Во сколько раз уменьшается предел при ошибке, таймауте или медленном ответе
+         */
+        private double decreaseFactor = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class Recrawl {
+        /**
+         * Загружать ли повторно страницы, которым подошёл срок, в фоновом режиме
+         */
+        private boolean enabled = true;
+        /**
+         * Период проверки страниц, которым подошёл срок повторной загрузки, мс
+         */
+        private long checkInterval = 60000;
+        /**
+         * Максимальное количество повторных загрузок страниц в час для всех сайтов
+         */
+        private int budgetPerHour = 600;
+        /**
+         * Интервал повторной загрузки новой страницы
+         */
+        private Duration initialInterval = Duration.ofDays(1);
+        /**
+         * Наименьший интервал повторной загрузки
+         */
+        private Duration minInterval = Duration.ofHours(1);
+        /**
+         * Наибольший интервал повторной загрузки
+         */
+        private Duration maxInterval = Duration.ofDays(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Budget {
+        /**
+         * Максимальное количество страниц, загружаемых с одного сайта, 0 - без ограничения
+         */
+        private int maxPages = 0;
+        /**
+         * Максимальное количество переходов от главной страницы, 0 - без ограничения
+         */
+        private int maxDepth = 0;
+        /**
+         * Максимальный объём данных, загружаемых с одного сайта, байт, 0 - без ограничения
+         */
+        private long maxBytes = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Filter {
+        /**
+         * Типы содержимого, которые загружаются и индексируются
+         */
+        private List<String> contentTypes = new ArrayList<>(List.of("text/html", "application/xhtml+xml"));
+        /**
+         * Максимальный размер ответа, байт; загрузка более крупных ответов прерывается, 0 - без ограничения
+         */
+        private long maxBodySize = 5 * 1024 * 1024;
+        /**
+         * Расширения файлов, адреса которых не загружаются
+         */
+        private List<String> skippedExtensions = new ArrayList<>(List.of(
+                "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt", "ods", "rtf",
+                "jpg", "jpeg", "png", "gif", "bmp", "webp", "svg", "ico", "tif", "tiff",
+                "mp3", "mp4", "avi", "mkv", "mov", "wmv", "webm", "ogg", "wav", "flac",
+                "zip", "rar", "7z", "gz", "tgz", "tar", "bz2", "xz",
+                "exe", "msi", "dmg", "iso", "apk", "bin",
+                "css", "js", "woff", "woff2", "ttf", "eot"));
+    }
+
+    @Getter
+    @Setter
+    public static class Distributed {
+        /**
+         * Вести обход через общую очередь в БД, которую разбирают рабочие процессы с профилем worker
+         */
+        private boolean enabled = false;
+        /**
+         * Имя рабочего процесса; по умолчанию имя хоста и идентификатор процесса
+         */
+        private String workerId = "";
+        /**
+         * Количество заданий, захватываемых рабочим процессом за один раз
+         */
+        private int batchSize = 50;
+        /**
+         * Время аренды задания, после которого незавершённое задание возвращается в очередь
+         */
+        private Duration lease = Duration.ofMinutes(5);
+        /**
+         * Количество попыток выполнить задание
+         */
+        private int maxAttempts = 3;
+        /**
+         * Пауза рабочего процесса при пустой очереди, мс
+         */
+        private long pollInterval = 1000;
+        /**
+         * Период проверки истёкших аренд и завершения обхода сайтов, мс
+         */
+        private long checkInterval = 10000;
+    }
+
+    @Getter
+    @Setter
+    public static class Memory {
+        /**
+         * Замедлять индексацию при нехватке памяти
+         */
+        private boolean enabled = true;
+        /**
+         * Доля старшего поколения кучи, занятая после сборки мусора, при которой индексация замедляется вдвое
+         */
+        private double elevated = 0.7;
+        /**
+         * Доля старшего поколения кучи, при которой страницы загружаются и сохраняются по одной
+         */
+        private double critical = 0.85;
+        /**
+         * Период проверки заполненности кучи, мс
+         */
+        private long checkInterval = 1000;
+    }
+}
@@ -8,6 +8,16 @@ import lombok.Setter;
 public class Site implements Comparable<Site> {
     private String url;
     private String name;
+    /**
+     * Доля сайта в общих пулах индексации относительно других сайтов
+     */
+    private int weight = 1;
+    /**
+     * Ограничения обхода сайта; если не заданы, используются значения из indexing-settings.budget
+     */
+    private Integer maxPages;
+    private Integer maxDepth;
+    private Long maxBytes;
 
     @Override
     public int compareTo(Site s) {
@@ -0,0 +1,217 @@
+package searchengine.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import searchengine.model.CrawlJob;
+import searchengine.model.CrawlJobStatus;
+import searchengine.model.Site;
+import searchengine.util.HibernateUtil;
+
+import java.util.*;
+
+/**
+ * Общая очередь распределённого обхода. Рабочие процессы захватывают задания запросом
+ * SELECT ... FOR UPDATE SKIP LOCKED, поэтому не ждут друг друга и не получают одни и те же задания.
+ */
+public class CrawlJobDao {
+    /**
+     * Наибольшее количество строк в одном запросе вставки
+     */
+    private static final int INSERT_SIZE = 500;
+    private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+
+    /**
+     * Добавляет страницы в очередь, пропуская уже добавленные при текущем обходе.
+     * Если обход сайта остановлен, страницы не добавляются.
+     *
+     * @param site  сайт
+     * @param paths пути страниц
+     * @param depth количество переходов от главной страницы
+     * @return количество добавленных заданий
+     */
+    public int enqueue(Site site, Collection<String> paths, int depth) {
+        if (paths.isEmpty()) {
+            return 0;
+        }
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        List<String> list = new ArrayList<>(paths);
+        int added = 0;
+
+        for (int from = 0; from < list.size(); from += INSERT_SIZE) {
+            List<String> chunk = list.subList(from, Math.min(from + INSERT_SIZE, list.size()));
+            StringJoiner rows = new StringJoiner(" union all ");
+
+            for (int i = 0; i < chunk.size(); i++) {
+                rows.add("select :path" + i + " as path");
+            }
+
+            // состояние сайта проверяется в том же запросе, что и вставка, чтобы не добавить задания остановленного обхода
+            Query query = session.createNativeQuery("insert ignore into crawl_job (site_id, path, depth, status, attempts) " +
+                    "select s.id, p.path, :depth, 'QUEUED', 0 from site s cross join (" + rows + ") p " +
+                    "where s.id = :site and s.status = 'INDEXING'");
+            query.setParameter("site", site.getId())
+                    .setParameter("depth", depth);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                query.setParameter("path" + i, chunk.get(i));
+            }
+
+            added += query.executeUpdate();
+        }
+
+        transaction.commit();
+        session.close();
+        return added;
+    }
+
+    /**
+     * Захватывает задания, ближайшие к главным страницам сайтов
+     *
+     * @param owner   имя рабочего процесса
+     * @param limit   максимальное количество заданий
+     * @param expires время окончания аренды
+     * @return захваченные задания вместе с сайтами
+     */
+    public List<CrawlJob> claim(String owner, int limit, Date expires) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Transaction transaction = session.beginTransaction();
+            Query<Integer> select = session.createNativeQuery("select id from crawl_job where status = 'QUEUED' " +
+                    "order by depth, id limit :limit for update skip locked", Integer.class);
+            select.setParameter("limit", limit);
+            List<Integer> ids = select.getResultList();
+
+            if (ids.isEmpty()) {
+                transaction.commit();
+                return new ArrayList<>();
+            }
+
+            Query update = session.createQuery("update CrawlJob set status = :status, leaseOwner = :owner, " +
+                    "leaseExpires = :expires, attempts = attempts + 1 where id in :ids");
+            update.setParameter("status", CrawlJobStatus.LEASED)
+                    .setParameter("owner", owner)
+                    .setParameter("expires", expires)
+                    .setParameterList("ids", ids)
+                    .executeUpdate();
+            transaction.commit();
+
+            Query<CrawlJob> query = session.createQuery("from CrawlJob j join fetch j.site where j.id in :ids", CrawlJob.class);
+            query.setParameterList("ids", ids);
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Завершает задания, если они всё ещё арендованы этим процессом
+     *
+     * @param ids    идентификаторы заданий
+     * @param owner  имя рабочего процесса
+     * @param status итоговое состояние заданий
+     */
+    public void complete(Collection<Integer> ids, String owner, CrawlJobStatus status) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query query = session.createQuery("update CrawlJob set status = :status, leaseOwner = null, leaseExpires = null " +
+                "where id in :ids and leaseOwner = :owner");
+        query.setParameter("status", status)
+                .setParameter("owner", owner)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+    }
+
+    /**
+     * Возвращает в очередь задания с истёкшей арендой; задания, исчерпавшие попытки, считаются неудачными
+     *
+     * @param now         текущее время
+     * @param maxAttempts максимальное количество попыток
+     * @return количество заданий, возвращённых в очередь
+     */
+    public int requeueExpired(Date now, int maxAttempts) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query failed = session.createQuery("update CrawlJob set status = :failed, leaseOwner = null, leaseExpires = null " +
+                "where status = :leased and leaseExpires < :now and attempts >= :maxAttempts");
+        failed.setParameter("failed", CrawlJobStatus.FAILED)
+                .setParameter("leased", CrawlJobStatus.LEASED)
+                .setParameter("now", now)
+                .setParameter("maxAttempts", maxAttempts)
+                .executeUpdate();
+        Query requeued = session.createQuery("update CrawlJob set status = :queued, leaseOwner = null, leaseExpires = null " +
+                "where status = :leased and leaseExpires < :now");
+        int count = requeued.setParameter("queued", CrawlJobStatus.QUEUED)
+                .setParameter("leased", CrawlJobStatus.LEASED)
+                .setParameter("now", now)
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+        return count;
+    }
+
+    /**
+     * Количество заданий сайта в очереди и в работе
+     */
+    public int getActiveCount(Site site) {
+        return getCount(site, List.of(CrawlJobStatus.QUEUED, CrawlJobStatus.LEASED));
+    }
+
+    /**
+     * Количество всех заданий сайта при текущем обходе
+     */
+    public int getCount(Site site) {
+        return getCount(site, List.of(CrawlJobStatus.values()));
+    }
+
+    /**
+     * Удаляет задания сайта, которые ещё не захвачены рабочими процессами
+     *
+     * @param site сайт
+     */
+    public void deleteQueued(Site site) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query query = session.createQuery("delete from CrawlJob where site = :site and status = :status");
+        query.setParameter("site", site)
+                .setParameter("status", CrawlJobStatus.QUEUED)
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+    }
+
+    /**
+     * Удаляет все задания сайта
+     *
+     * @param site сайт
+     */
+    public void deleteBySite(Site site) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query query = session.createQuery("delete from CrawlJob where site = :site");
+        query.setParameter("site", site)
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+    }
+
+    private int getCount(Site site, Collection<CrawlJobStatus> statuses) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Long> query = session.createQuery(
+                    "select count(*) from CrawlJob where site = :site and status in :statuses", Long.class);
+            query.setParameter("site", site);
+            query.setParameterList("statuses", statuses);
+            return Math.toIntExact(query.getSingleResult());
+        }
+    }
+}
@@ -45,10 +45,16 @@ public class IndexDao implements Dao<Index> {
 
     public Optional<List<Index>> getListByPage(Page page) {
         Session session = sessionFactory.openSession();
+
+        try (session) {
+            return getListByPage(session, page);
+        }
+    }
+
+    public Optional<List<Index>> getListByPage(Session session, Page page) {
         Query<Index> query = session.createQuery("from Index where page = :page", Index.class);
         query.setParameter("page", page);
         List<Index> indexes = query.getResultList();
-        session.close();
         return indexes.isEmpty() ? Optional.empty() : Optional.of(indexes);
     }
 
@@ -90,6 +96,12 @@ public class IndexDao implements Dao<Index> {
     public void saveOrUpdateBatch(Collection<Index> indexes) {
         Session session = sessionFactory.openSession();
         Transaction transaction = session.beginTransaction();
+        saveOrUpdateBatch(session, indexes);
+        transaction.commit();
+        session.close();
+    }
+
+    public void saveOrUpdateBatch(Session session, Collection<Index> indexes) {
         int i = 0;
 
         for (Index index : indexes) {
@@ -109,8 +121,7 @@ public class IndexDao implements Dao<Index> {
             i++;
         }
 
-        transaction.commit();
-        session.close();
+        session.flush();
     }
 
     @Override
@@ -131,6 +142,20 @@ public class IndexDao implements Dao<Index> {
         session.close();
     }
 
+    public void deleteByPage(Page page) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        deleteByPage(session, page);
+        transaction.commit();
+        session.close();
+    }
+
+    public void deleteByPage(Session session, Page page) {
+        Query query = session.createQuery("delete from Index where page = :page");
+        query.setParameter("page", page)
+                .executeUpdate();
+    }
+
     public void delete(Object[] ids) {
         Session session = sessionFactory.openSession();
         Transaction transaction = session.beginTransaction();
@@ -15,6 +15,10 @@ import java.util.*;
 public class LemmaDao implements Dao<Lemma> {
     private static LemmaDao instance;
     private final static int BATCH_SIZE = 20;
+    /**
+     * Наибольшее количество строк в одном запросе вставки
+     */
+    private final static int INSERT_SIZE = 500;
 
     @Autowired
     SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
@@ -47,8 +51,8 @@ public class LemmaDao implements Dao<Lemma> {
     public Optional<Lemma> get(Lemma lemma) {
         Session session = sessionFactory.openSession();
 
-        Query<Lemma> query = session.createQuery("from Lemma where lemma = :lemma and site = :site", Lemma.class);
-        query.setParameter("lemma", lemma.getLemma());
+        Query<Lemma> query = session.createQuery("from Lemma where termId = :term and site = :site", Lemma.class);
+        query.setParameter("term", lemma.getTermId());
         query.setParameter("site", lemma.getSite());
 
         Lemma l;
@@ -80,16 +84,145 @@ public class LemmaDao implements Dao<Lemma> {
         return Optional.of(lemmas);
     }
 
-    public Optional<List<Lemma>> getLemmasByListAndSite(Object[] lemmas, Site site) {
+    /**
+     * Возвращает леммы сайта по идентификаторам слов в словаре
+     *
+     * @param termIds идентификаторы слов
+     * @param site    сайт
+     * @return леммы или пустой Optional, если на сайте нет ни одного слова
+     */
+    public Optional<List<Lemma>> getLemmasByListAndSite(Object[] termIds, Site site) {
         Session session = sessionFactory.openSession();
-        Query<Lemma> query = session.createQuery("from Lemma where site = :site and lemma in :lemmas", Lemma.class);
-        query.setParameterList("lemmas", lemmas);
+        Query<Lemma> query = session.createQuery("from Lemma where site = :site and termId in :terms", Lemma.class);
+        query.setParameterList("terms", termIds);
         query.setParameter("site", site);
         List<Lemma> lemmaList = query.getResultList();
         return lemmaList.isEmpty() ? Optional.empty() : Optional.of(lemmaList);
     }
 
 
+    /**
+     * Загружает идентификаторы всех лемм сайта
+     *
+     * @param site сайт
+     * @return идентификаторы лемм по идентификатору слова в словаре
+     */
+    public Map<Integer, Integer> getIdsBySite(Site site) {
+        Session session = sessionFactory.openSession();
+        Map<Integer, Integer> ids = new HashMap<>();
+
+        try (session) {
+            Query<Object[]> query = session.createQuery("select termId, id from Lemma where site = :site", Object[].class);
+            query.setParameter("site", site);
+            query.getResultList().forEach(row -> ids.put((Integer) row[0], (Integer) row[1]));
+        }
+
+        return ids;
+    }
+
+    /**
+     * Создаёт леммы сайта с нулевой частотой, пропуская уже существующие, в том числе созданные
+     * параллельно другими процессами, и возвращает идентификаторы всех переданных лемм
+     *
+     * @param site    сайт
+     * @param termIds идентификаторы слов в словаре
+     * @return идентификаторы лемм по идентификатору слова
+     */
+    public Map<Integer, Integer> insertMissing(Site site, Collection<Integer> termIds) {
+        Map<Integer, Integer> ids = new HashMap<>();
+
+        if (termIds.isEmpty()) {
+            return ids;
+        }
+
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Transaction transaction = session.beginTransaction();
+            // леммы вставляются в одном порядке, чтобы параллельные вставки не блокировали друг друга
+            List<Integer> sorted = new ArrayList<>(new TreeSet<>(termIds));
+
+            for (int from = 0; from < sorted.size(); from += INSERT_SIZE) {
+                List<Integer> chunk = sorted.subList(from, Math.min(from + INSERT_SIZE, sorted.size()));
+                StringJoiner values = new StringJoiner(", ");
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    values.add("(:site, :term" + i + ", 0)");
+                }
+
+                // пропускаются только уже существующие леммы; остальные ошибки не подавляются, как было бы с insert ignore
+                Query insert = session.createNativeQuery("insert into lemma (site_id, term_id, frequency) values " +
+                        values + " on duplicate key update id = id");
+                insert.setParameter("site", site.getId());
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    insert.setParameter("term" + i, chunk.get(i));
+                }
+
+                insert.executeUpdate();
+            }
+
+            transaction.commit();
+
+            Query<Object[]> query = session.createQuery("select termId, id from Lemma where site = :site and termId in :terms",
+                    Object[].class);
+            query.setParameter("site", site);
+            query.setParameterList("terms", termIds);
+            query.getResultList().forEach(row -> ids.put((Integer) row[0], (Integer) row[1]));
+        }
+
+        return ids;
+    }
+
+    /**
+     * Изменяет частоту лемм на заданные величины одной транзакцией
+     *
+     * @param deltas изменение частоты по идентификатору леммы
+     */
+    public void addFrequencies(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        addFrequencies(session, deltas);
+        transaction.commit();
+        session.close();
+    }
+
+    /**
+     * Изменяет частоту лемм в транзакции сессии
+     *
+     * @param session сессия с открытой транзакцией
+     * @param deltas  изменение частоты по идентификатору леммы
+     */
+    public void addFrequencies(Session session, Map<Integer, Integer> deltas) {
+        Query query = session.createQuery("update Lemma set frequency = frequency + :delta where id = :id");
+
+        // обновляем строки в одном порядке, чтобы параллельные транзакции не блокировали друг друга
+        for (Map.Entry<Integer, Integer> entry : new TreeMap<>(deltas).entrySet()) {
+            query.setParameter("delta", entry.getValue())
+                    .setParameter("id", entry.getKey())
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Удаляет леммы сайта с нулевой частотой
+     *
+     * @param site сайт
+     */
+    public void deleteUnused(Site site) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query query = session.createQuery("delete from Lemma where site = :site and frequency <= 0");
+        query.setParameter("site", site)
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+    }
+
     @Override
     public void save(Lemma lemma) {
         Session session = sessionFactory.openSession();
@@ -127,9 +260,15 @@ public class LemmaDao implements Dao<Lemma> {
                     session.persist(lemma);
                 } else {
                     Lemma l = get(lemma).orElse(null);
-                    lemma.setFrequency(lemma.getFrequency() + l.getFrequency());
-                    lemma.setId(l.getId());
-                    session.merge(lemma);
+
+                    if (l == null) {
+                        lemma.setId(0);
+                        session.persist(lemma);
+                    } else {
+                        lemma.setFrequency(lemma.getFrequency() + l.getFrequency());
+                        lemma.setId(l.getId());
+                        session.merge(lemma);
+                    }
                 }
             } catch (HibernateException e) {
                 e.printStackTrace();
@@ -8,6 +8,7 @@ import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
+import searchengine.model.CrawlJobStatus;
 import searchengine.model.Index;
 import searchengine.model.Page;
 import searchengine.model.Site;
@@ -29,17 +30,29 @@ public class PageDao implements Dao<Page> {
 
     public Optional<Page> get(Page page) {
         Session session = sessionFactory.openSession();
+
+        try (session) {
+            return get(session, page);
+        }
+    }
+
+    /**
+     * Находит сохранённую версию страницы в заданной сессии
+     *
+     * @param session открытая сессия
+     * @param page    страница с заданными сайтом и путём
+     * @return сохранённая страница или пустой Optional
+     */
+    public Optional<Page> get(Session session, Page page) {
+        Query<Page> query = session.createQuery("from Page where path = :path and site = :site", Page.class);
+        query.setParameter("path", page.getPath());
+        query.setParameter("site", page.getSite());
         Page p;
 
         try {
-            Query<Page> query = session.createQuery("from Page where path = :path and site = :site", Page.class);
-            query.setParameter("path", page.getPath());
-            query.setParameter("site", page.getSite());
             p = query.getSingleResult();
         } catch (Exception e) {
             p = null;
-        } finally {
-            session.close();
         }
 
         return p == null ? Optional.empty() : Optional.of(p);
@@ -71,6 +84,139 @@ public class PageDao implements Dao<Page> {
         return pages.isEmpty() ? Optional.empty() : Optional.of(pages);
     }
 
+    /**
+     * Загружает пути страниц сайта вместе с заголовками для условных запросов, без содержимого
+     *
+     * @param site сайт
+     * @return строки из идентификатора, пути, ETag, Last-Modified, хеша содержимого, времени последнего изменения
+     * и интервала повторной загрузки страницы
+     */
+    public List<Object[]> getValidatorsBySite(Site site) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Object[]> query = session.createQuery(
+                    "select id, path, etag, lastModified, contentHash, lastChanged, revisitInterval from Page where site = :site",
+                    Object[].class);
+            query.setParameter("site", site);
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Загружает отпечатки проиндексированных страниц сайта, не являющихся копиями других страниц
+     *
+     * @param site сайт
+     * @return пары из идентификатора страницы и её отпечатка
+     */
+    public List<Object[]> getFingerprintsBySite(Site site) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Object[]> query = session.createQuery("select id, simhash from Page " +
+                    "where site = :site and simhash is not null and canonicalPageId is null", Object[].class);
+            query.setParameter("site", site);
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Отвязывает копии от удалённой страницы и сбрасывает их заголовки и хеш содержимого,
+     * чтобы при следующей загрузке они были проиндексированы заново
+     *
+     * @param canonicalPageId идентификатор удалённой страницы
+     * @return идентификаторы отвязанных копий
+     */
+    public List<Integer> releaseAliases(int canonicalPageId) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        List<Integer> ids = releaseAliases(session, canonicalPageId);
+        transaction.commit();
+        session.close();
+        return ids;
+    }
+
+    /**
+     * Отвязывает копии от удалённой страницы в транзакции сессии
+     *
+     * @param session         сессия с открытой транзакцией
+     * @param canonicalPageId идентификатор удалённой страницы
+     * @return идентификаторы отвязанных копий
+     */
+    public List<Integer> releaseAliases(Session session, int canonicalPageId) {
+        Query<Integer> select = session.createQuery("select id from Page where canonicalPageId = :id", Integer.class);
+        List<Integer> ids = select.setParameter("id", canonicalPageId).getResultList();
+
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        Query query = session.createQuery("update Page set canonicalPageId = null, etag = null, lastModified = null, " +
+                "contentHash = null, nextFetch = null where id in :ids");
+        query.setParameterList("ids", ids)
+                .executeUpdate();
+        return ids;
+    }
+
+    /**
+     * Загружает пути страниц сайта, которые не были успешно получены при распределённом обходе
+     *
+     * @param site сайт
+     * @return пути страниц
+     */
+    public List<String> getPathsNotCrawled(Site site) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<String> query = session.createQuery("select p.path from Page p where p.site = :site and not exists " +
+                    "(select j.id from CrawlJob j where j.site = p.site and j.path = p.path and j.status = :done)",
+                    String.class);
+            query.setParameter("site", site);
+            query.setParameter("done", CrawlJobStatus.DONE);
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Загружает страницы, которые пора загрузить повторно, начиная с самых просроченных
+     *
+     * @param now   текущее время
+     * @param limit максимальное количество страниц
+     * @return страницы вместе с сайтами
+     */
+    public List<Page> getDue(Date now, int limit) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Page> query = session.createQuery(
+                    "from Page p join fetch p.site where p.nextFetch is null or p.nextFetch <= :now order by p.nextFetch",
+                    Page.class);
+            query.setParameter("now", now);
+            query.setMaxResults(limit);
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Сохраняет время загрузки страницы и время следующей загрузки, не изменяя остальные поля
+     *
+     * @param page страница
+     */
+    public void updateSchedule(Page page) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        Query query = session.createQuery("update Page set lastFetched = :lastFetched, lastChanged = :lastChanged, " +
+                "nextFetch = :nextFetch, revisitInterval = :revisitInterval where id = :id");
+        query.setParameter("lastFetched", page.getLastFetched())
+                .setParameter("lastChanged", page.getLastChanged())
+                .setParameter("nextFetch", page.getNextFetch())
+                .setParameter("revisitInterval", page.getRevisitInterval())
+                .setParameter("id", page.getId())
+                .executeUpdate();
+        transaction.commit();
+        session.close();
+    }
+
     public Optional<List<Page>> getListByIndexes(Collection<Index> indexes) {
         Session session = sessionFactory.openSession();
         List<Integer> i = new ArrayList<>();
@@ -97,6 +243,23 @@ public class PageDao implements Dao<Page> {
         }
     }
 
+    public void saveBatch(Collection<Page> pages) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        saveBatch(session, pages);
+        transaction.commit();
+        session.close();
+    }
+
+    public void saveBatch(Session session, Collection<Page> pages) {
+        for (Page page : pages) {
+            session.persist(page);
+        }
+
+        // идентификаторы нужны индексам и копиям страниц, которые сохраняются в той же транзакции
+        session.flush();
+    }
+
     public void saveOrUpdate(Page page) {
         Session session = sessionFactory.openSession();
         Transaction transaction = session.beginTransaction();
@@ -125,6 +288,17 @@ public class PageDao implements Dao<Page> {
         return Math.toIntExact(count);
     }
 
+    public int getDuplicatesCount(Site site) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Long> query = session.createQuery(
+                    "select count(*) from Page where site = :site and canonicalPageId is not null", Long.class);
+            query.setParameter("site", site);
+            return Math.toIntExact(query.getSingleResult());
+        }
+    }
+
     @Override
     public void update(Page page) {
         Session session = sessionFactory.openSession();
@@ -138,11 +312,15 @@ public class PageDao implements Dao<Page> {
     public void delete(Page page) {
         Session session = sessionFactory.openSession();
         Transaction transaction = session.beginTransaction();
-        session.remove(page);
+        delete(session, page);
         transaction.commit();
         session.close();
     }
 
+    public void delete(Session session, Page page) {
+        session.remove(page);
+    }
+
     public void delete(Object[] ids) {
         Session session = sessionFactory.openSession();
         Transaction transaction = session.beginTransaction();
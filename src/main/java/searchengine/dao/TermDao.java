@@ -0,0 +1,107 @@
+package searchengine.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import searchengine.util.HibernateUtil;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Словарь нормальных форм слов
+ */
+public class TermDao {
+    /**
+     * Наибольшее количество строк в одном запросе вставки
+     */
+    private static final int INSERT_SIZE = 500;
+    private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+
+    /**
+     * Передаёт действию все слова словаря и их идентификаторы
+     *
+     * @param action действие
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Object[]> query = session.createQuery("select text, id from Term", Object[].class);
+            query.setReadOnly(true);
+            query.setFetchSize(10000);
+
+            try (var rows = query.stream()) {
+                rows.forEach(row -> action.accept((String) row[0], (Integer) row[1]));
+            }
+        }
+    }
+
+    /**
+     * Возвращает идентификаторы слов, которые уже есть в словаре
+     *
+     * @param texts слова
+     * @return идентификаторы по тексту слова
+     */
+    public Map<String, Integer> getIds(Collection<String> texts) {
+        Map<String, Integer> ids = new HashMap<>();
+
+        if (texts.isEmpty()) {
+            return ids;
+        }
+
+        Session session = sessionFactory.openSession();
+
+        try (session) {
+            Query<Object[]> query = session.createQuery("select text, id from Term where text in :texts", Object[].class);
+            query.setParameterList("texts", texts);
+            query.getResultList().forEach(row -> ids.put((String) row[0], (Integer) row[1]));
+        }
+
+        return ids;
+    }
+
+    /**
+     * Добавляет в словарь недостающие слова, пропуская добавленные параллельно другими процессами,
+     * и возвращает идентификаторы всех переданных слов
+     *
+     * @param texts слова
+     * @return идентификаторы по тексту слова
+     */
+    public Map<String, Integer> insertMissing(Collection<String> texts) {
+        if (texts.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Session session = sessionFactory.openSession();
+        // слова вставляются в одном порядке, чтобы параллельные вставки не блокировали друг друга
+        List<String> sorted = new ArrayList<>(new TreeSet<>(texts));
+
+        try (session) {
+            Transaction transaction = session.beginTransaction();
+
+            for (int from = 0; from < sorted.size(); from += INSERT_SIZE) {
+                List<String> chunk = sorted.subList(from, Math.min(from + INSERT_SIZE, sorted.size()));
+                StringJoiner values = new StringJoiner(", ");
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    values.add("(:text" + i + ")");
+                }
+
+                Query insert = session.createNativeQuery("insert into term (text) values " + values +
+                        " on duplicate key update id = id");
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    insert.setParameter("text" + i, chunk.get(i));
+                }
+
+                insert.executeUpdate();
+            }
+
+            transaction.commit();
+        }
+
+        return getIds(texts);
+    }
+}
@@ -11,4 +11,7 @@ public class DetailedStatisticsItem {
     private String error;
     private int pages;
     private int lemmas;
+    private int duplicates;
+    private int crawlConcurrency;
+    private long stopLatency;
 }
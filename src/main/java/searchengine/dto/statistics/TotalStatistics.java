@@ -7,5 +7,10 @@ public class TotalStatistics {
     private int sites;
     private int pages;
     private int lemmas;
+    private int duplicates;
     private boolean indexing;
+    private String memoryPressure;
+    private int heapOccupancy;
+    private long lemmaCacheHits;
+    private long lemmaCacheMisses;
 }
@@ -0,0 +1,51 @@
+package searchengine.model;
+
+import jakarta.persistence.Index;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Страница в общей очереди распределённого обхода. Рабочий процесс захватывает задание на время аренды;
+ * если он не завершил его вовремя, задание возвращается в очередь.
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(name = "crawl_job",
+        uniqueConstraints = @UniqueConstraint(name = "site_path_unique", columnNames = {"site_id", "path"}),
+        indexes = @Index(name = "status_depth_index", columnList = "status, depth, id"))
+public class CrawlJob implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private int id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "site_id", nullable = false)
+    @ToString.Exclude
+    private Site site;
+
+    @Column(name = "path", columnDefinition = "VARCHAR(255)", nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private int depth;
+
+    @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "VARCHAR(16)", nullable = false)
+    private CrawlJobStatus status;
+
+    @Column(name = "lease_owner", columnDefinition = "VARCHAR(64)")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires")
+    private Date leaseExpires;
+
+    @Column(nullable = false)
+    private int attempts;
+}
@@ -6,13 +6,12 @@ import org.hibernate.proxy.HibernateProxy;
 
 import java.io.Serializable;
 import java.util.List;
-import java.util.Objects;
 
 @Getter
 @Setter
 @RequiredArgsConstructor
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = "site_term_unique", columnNames = {"site_id", "term_id"}))
 public class Lemma implements Serializable, Comparable<Lemma>{
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,8 +22,11 @@ public class Lemma implements Serializable, Comparable<Lemma>{
     @JoinColumn(name = "site_id", nullable = false)
     private Site site;
 
-    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
-    private String lemma;
+    /**
+     * Идентификатор слова в общем словаре {@link Term}
+     */
+    @Column(name = "term_id", nullable = false)
+    private int termId;
 
     @Column(nullable = false)
     private int frequency;
@@ -49,9 +51,8 @@ public class Lemma implements Serializable, Comparable<Lemma>{
                 : this.getClass();
         if (thisEffectiveClass != oEffectiveClass) return false;
         Lemma lemma = (Lemma) o;
-        return getLemma() != null &&
-                getSite().getId() == lemma.getSite().getId() &&
-                Objects.equals(getLemma(), lemma.getLemma());
+        return getSite().getId() == lemma.getSite().getId() &&
+                getTermId() == lemma.getTermId();
     }
 
     @Override
@@ -61,7 +62,7 @@ public class Lemma implements Serializable, Comparable<Lemma>{
 
     @Override
     public String toString() {
-        return String.format("{%s}", lemma);
+        return String.format("{%d}", termId);
     }
 
 }
@@ -6,6 +6,7 @@ import lombok.*;
 import org.hibernate.proxy.HibernateProxy;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
@@ -15,7 +16,9 @@ import java.util.Objects;
 @RequiredArgsConstructor
 @Entity
 @Table(indexes = {
-        @Index(name = "path_index", columnList = "path")
+        @Index(name = "path_index", columnList = "path"),
+        @Index(name = "next_fetch_index", columnList = "next_fetch"),
+        @Index(name = "canonical_page_index", columnList = "canonical_page_id")
 })
 public class Page implements Serializable {
     @Id
@@ -37,6 +40,53 @@ public class Page implements Serializable {
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String content;
 
+    @Column(columnDefinition = "TEXT")
+    private String title;
+
+    @Column(name = "\"text\"", columnDefinition = "MEDIUMTEXT")
+    @ToString.Exclude
+    private String text;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    @ToString.Exclude
+    private String links;
+
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    @Column(name = "last_fetched")
+    private Date lastFetched;
+
+    @Column(name = "last_changed")
+    private Date lastChanged;
+
+    @Column(name = "next_fetch")
+    private Date nextFetch;
+
+    /**
+     * Интервал между повторными загрузками страницы, с
+     */
+    @Column(name = "revisit_interval")
+    private long revisitInterval;
+
+    /**
+     * Отпечаток SimHash текста страницы
+     */
+    @Column(name = "simhash")
+    private Long simhash;
+
+    /**
+     * Идентификатор страницы, почти одинаковой с этой; такая страница не индексируется
+     */
+    @Column(name = "canonical_page_id")
+    private Integer canonicalPageId;
+
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "page")
     @ToString.Exclude
     private List<searchengine.model.Index> indexes;
@@ -54,6 +104,6 @@ public class Page implements Serializable {
 
     @Override
     public final int hashCode() {
-        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+        return Objects.hashCode(getPath());
     }
 }
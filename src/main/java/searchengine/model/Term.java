@@ -0,0 +1,27 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Нормальная форма слова в общем для всех сайтов словаре. Леммы сайтов и индексы ссылаются
+ * на слово по его числовому идентификатору, поэтому строка хранится один раз.
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "term_text_unique", columnNames = "text"))
+public class Term implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private int id;
+
+    // двоичное сравнение: при сравнении без учёта диакритики слова с "й" совпали бы со словами с "и"
+    @Column(columnDefinition = "VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin", nullable = false)
+    private String text;
+}
@@ -0,0 +1,9 @@
+package searchengine.services;
+
+public interface CrawlCoordinatorService {
+    void start();
+
+    void stop();
+
+    void checkJobs();
+}
@@ -0,0 +1,66 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.businessLogic.CrawlCoordinator;
+import searchengine.businessLogic.CrawlScheduler;
+import searchengine.config.IndexingSettings;
+import searchengine.config.SitesList;
+
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+public class CrawlCoordinatorServiceImpl implements CrawlCoordinatorService {
+    private final SitesList sites;
+    private final IndexingSettings settings;
+    private volatile CrawlCoordinator coordinator;
+
+    /**
+     * Заполняет общую очередь обхода для всех сайтов
+     */
+    @Override
+    public void start() {
+        getCoordinator().start(sites.getSites());
+    }
+
+    /**
+     * Останавливает распределённый обход всех сайтов
+     */
+    @Override
+    public void stop() {
+        getCoordinator().stop(sites.getSites());
+    }
+
+    /**
+     * Возвращает в очередь задания с истёкшей арендой и завершает обход сайтов без заданий.
+     * Выполняется, только если включён распределённый обход.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${indexing-settings.distributed.check-interval:10000}")
+    public void checkJobs() {
+        if (!settings.getDistributed().isEnabled()) {
+            return;
+        }
+
+        boolean active = getCoordinator().check(sites.getSites());
+
+        if (!active && IndexingServiceImpl.isStarted()) {
+            IndexingServiceImpl.setStarted(false);
+        }
+    }
+
+    private CrawlCoordinator getCoordinator() {
+        CrawlCoordinator localCoordinator = coordinator;
+        if (localCoordinator == null) {
+            synchronized (this) {
+                localCoordinator = coordinator;
+                if (localCoordinator == null) {
+                    coordinator = localCoordinator = new CrawlCoordinator(CrawlScheduler.getInstance(settings), settings);
+                }
+            }
+        }
+        return localCoordinator;
+    }
+}
@@ -0,0 +1,7 @@
+package searchengine.services;
+
+public interface CrawlWorkerService {
+    void start();
+
+    void stop();
+}
@@ -0,0 +1,83 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import searchengine.businessLogic.CrawlScheduler;
+import searchengine.businessLogic.CrawlWorker;
+import searchengine.config.IndexingSettings;
+import searchengine.config.SitesList;
+
+import java.lang.management.ManagementFactory;
+
+@Service
+@Profile("worker")
+@RequiredArgsConstructor
+public class CrawlWorkerServiceImpl implements CrawlWorkerService {
+    private final SitesList sites;
+    private final IndexingSettings settings;
+    private final Logger logger = LoggerFactory.getLogger(CrawlWorkerServiceImpl.class);
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Запускает разбор общей очереди обхода после старта приложения
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        String workerId = settings.getDistributed().getWorkerId();
+        String owner = workerId == null || workerId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : workerId;
+        CrawlWorker worker = new CrawlWorker(owner, sites.getSites(), CrawlScheduler.getInstance(settings), settings);
+
+        running = true;
+        thread = new Thread(() -> work(worker), "crawl-worker");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Crawl worker {} started", owner);
+    }
+
+    /**
+     * Останавливает разбор очереди; незавершённые задания вернутся в очередь после окончания аренды
+     */
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void work(CrawlWorker worker) {
+        while (running) {
+            try {
+                if (worker.work() == 0) {
+                    Thread.sleep(settings.getDistributed().getPollInterval());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Crawl worker failed: {}", e.getMessage());
+
+                try {
+                    Thread.sleep(settings.getDistributed().getPollInterval());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,39 +1,48 @@
 package searchengine.services;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import searchengine.config.IndexingSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
-import searchengine.dao.IndexDao;
-import searchengine.dao.LemmaDao;
 import searchengine.dao.SiteDao;
 import searchengine.businessLogic.PageIndexer;
+import searchengine.businessLogic.CrawlScheduler;
 import searchengine.businessLogic.SiteParserHandler;
+import searchengine.businessLogic.UrlCanonicalizer;
+import searchengine.businessLogic.ContentFilter;
+import searchengine.businessLogic.SiteParser;
 import searchengine.dto.response.FailureResponse;
 import searchengine.dto.response.Response;
-import searchengine.model.Index;
-import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Status;
 
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 public class IndexingServiceImpl implements IndexingService {
+    private static final Logger logger = LoggerFactory.getLogger(IndexingServiceImpl.class);
     private static final Pattern URL_PATTERN = Pattern.compile("(?<root>https?://[^/]+)?(?<path>.+)");
 
+    @Getter
     @Setter
-    private static boolean isStarted = false;
+    private static volatile boolean isStarted = false;
     private final SitesList sites;
+    private final IndexingSettings settings;
+    private final Optional<CrawlCoordinatorService> coordinator;
+    private final Optional<RecrawlService> recrawl;
     private List<SiteParserHandler> handlers;
-    private List<Thread> threads;
+    private CrawlScheduler scheduler;
+    private List<Future<?>> tasks;
     private final SiteDao siteDao = new SiteDao();
-    private final LemmaDao lemmaDao = new LemmaDao();
-    private final IndexDao indexDao = new IndexDao();
 
     /**
      * Запускает полную индесацию всех сайтов.
@@ -43,7 +52,7 @@ public class IndexingServiceImpl implements IndexingService {
     @Override
     public Response startIndexing() {
         handlers = new ArrayList<>();
-        threads = new ArrayList<>();
+        tasks = new ArrayList<>();
 
         if (isStarted) {
             FailureResponse response = new FailureResponse();
@@ -52,17 +61,26 @@ public class IndexingServiceImpl implements IndexingService {
             return response;
         }
 
-        isStarted = true;
-        createSiteParserHandlers();
+        if (settings.getDistributed().isEnabled()) {
+            if (coordinator.isEmpty()) {
+                return getWorkerResponse();
+            }
 
-        for (SiteParserHandler handler : handlers) {
-            threads.add(new Thread(handler));
-        }
+            isStarted = true;
+            stopRecrawl();
+            coordinator.get().start();
 
-        for (Thread thread : threads) {
-            thread.start();
+            Response response = new Response();
+            response.setResult(true);
+            return response;
         }
 
+        isStarted = true;
+        stopRecrawl();
+        scheduler = CrawlScheduler.getInstance(settings);
+
+        createSiteParserHandlers();
+
         Response response = new Response();
         response.setResult(true);
 
@@ -76,6 +94,15 @@ public class IndexingServiceImpl implements IndexingService {
      */
     @Override
     public Response stopIndexing() {
+        // вне полной индексации останавливается повторная загрузка страниц, если она выполняется
+        if (!isStarted && recrawl.isPresent() && recrawl.get().isRunning()) {
+            stopRecrawl();
+
+            Response response = new Response();
+            response.setResult(true);
+            return response;
+        }
+
         if (!isStarted) {
             FailureResponse response = new FailureResponse();
             response.setResult(false);
@@ -83,14 +110,20 @@ public class IndexingServiceImpl implements IndexingService {
             return response;
         }
 
-        for (SiteParserHandler handler : handlers) {
-            handler.stopParsing();
+        if (settings.getDistributed().isEnabled()) {
+            if (coordinator.isEmpty()) {
+                return getWorkerResponse();
+            }
+
+            coordinator.get().stop();
         }
 
-        for (Thread thread : threads) {
-            thread.interrupt();
+        for (SiteParserHandler handler : handlers) {
+            handler.stopParsing();
         }
 
+        awaitHandlers();
+        stopRecrawl();
         isStarted = false;
 
         Response response = new Response();
@@ -119,9 +152,6 @@ public class IndexingServiceImpl implements IndexingService {
                 searchengine.model.Site s = saveOrUpdateSite(sortedSites, pos, matcher);
 
                 indexPage(s, matcher);
-
-                saveAndClearCurrentSiteLemmas(PageIndexer.getLemmas(), s);
-                saveAndClearCurrentSiteIndexes(PageIndexer.getIndexes(), s);
                 s.setStatus(Status.INDEXED);
                 siteDao.saveOrUpdate(s);
 
@@ -153,31 +183,77 @@ public class IndexingServiceImpl implements IndexingService {
     }
 
     private void indexPage(searchengine.model.Site site, Matcher matcher) {
-        String path = matcher.group("path");
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(site.getUrl(), settings.getCanonicalization());
+        String path = canonicalizer.canonicalize(matcher.group("path"));
         Page p = new Page();
-        p.setPath(path);
+        p.setPath(path == null ? "/" : path);
         p.setSite(site);
-        PageIndexer indexer = new PageIndexer(site, p);
-        indexer.index();
+        SiteParser.parsePage(p, new ContentFilter(settings.getFilter()));
+        PageIndexer indexer = new PageIndexer(site);
+        indexer.index(p);
     }
 
-    private void createSiteParserHandlers() {
-        for (searchengine.config.Site site : sites.getSites()) {
-            handlers.add(new SiteParserHandler(site));
+    private Response getWorkerResponse() {
+        FailureResponse response = new FailureResponse();
+        response.setResult(false);
+        response.setError("Распределённой индексацией управляет основной процесс");
+        return response;
+    }
+
+    /**
+     * Останавливает повторную загрузку страниц, чтобы она не обрабатывала страницы одновременно с полной индексацией
+     */
+    private void stopRecrawl() {
+        if (recrawl.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (!recrawl.get().stop(settings.getScheduler().getStopTimeout())) {
+                logger.warn("Recrawl did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void saveAndClearCurrentSiteLemmas(Map<String, Lemma> lemmasMap, searchengine.model.Site site) {
-        List<Lemma> lemmas = lemmasMap.values().stream()
-                .filter(l -> l.getSite().getId() == site.getId()).toList();
-        lemmaDao.saveOrUpdateBatch(lemmas);
-        lemmasMap.entrySet().removeIf(e -> e.getValue().getSite().getId() == site.getId());
+    /**
+     * Дожидается остановки обхода сайтов. Ещё не начатые задачи снимаются сразу, а потоки, не успевшие
+     * остановиться за отведённое время, прерываются.
+     */
+    private void awaitHandlers() {
+        long deadline = System.currentTimeMillis() + settings.getScheduler().getStopTimeout();
+        long latency = 0;
+
+        for (int i = 0; i < handlers.size(); i++) {
+            SiteParserHandler handler = handlers.get(i);
+            Future<?> task = tasks.get(i);
+
+            if (task.cancel(false)) {
+                continue;
+            }
+
+            try {
+                if (!handler.awaitStopped(Math.max(0, deadline - System.currentTimeMillis()))) {
+                    logger.warn("Parsing of {} did not stop in time, interrupting", handler.getSite().getUrl());
+                    task.cancel(true);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+            }
+
+            latency = Math.max(latency, handler.getStopLatency());
+        }
+
+        logger.info("Indexing stopped in {} ms", latency);
     }
 
-    private void saveAndClearCurrentSiteIndexes(Collection<Index> indexes, searchengine.model.Site site) {
-        List<Index> indexList = indexes.stream()
-                .filter(index -> index.getPage().getSite().getId() == site.getId()).toList();
-        indexDao.saveOrUpdateBatch(indexList);
-        indexes.removeIf(i -> i.getPage().getSite().getId() == site.getId());
+    private void createSiteParserHandlers() {
+        for (searchengine.config.Site site : sites.getSites()) {
+            SiteParserHandler handler = new SiteParserHandler(site, scheduler, settings);
+            handlers.add(handler);
+            tasks.add(scheduler.submit(site.getUrl(), site.getWeight(), handler));
+        }
     }
-}
\ No newline at end of file
+}
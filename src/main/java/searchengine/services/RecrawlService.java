@@ -0,0 +1,18 @@
+package searchengine.services;
+
+public interface RecrawlService {
+    void recrawlDuePages();
+
+    /**
+     * @return true, если повторная загрузка выполняется
+     */
+    boolean isRunning();
+
+    /**
+     * Останавливает текущую повторную загрузку и дожидается её завершения
+     *
+     * @param timeout наибольшее время ожидания, мс
+     * @return true, если повторная загрузка не выполняется
+     */
+    boolean stop(long timeout) throws InterruptedException;
+}
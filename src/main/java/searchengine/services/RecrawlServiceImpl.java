@@ -0,0 +1,118 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.businessLogic.CancellationToken;
+import searchengine.businessLogic.CrawlScheduler;
+import searchengine.businessLogic.Recrawler;
+import searchengine.config.IndexingSettings;
+import searchengine.dao.PageDao;
+import searchengine.model.Page;
+
+import java.util.Date;
+import java.util.List;
+
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+public class RecrawlServiceImpl implements RecrawlService {
+    private final IndexingSettings settings;
+    private final PageDao pageDao = new PageDao();
+    private final Logger logger = LoggerFactory.getLogger(RecrawlServiceImpl.class);
+    private double budget;
+    private long lastRun;
+    private CancellationToken running;
+
+    /**
+     * Повторно загружает страницы, которым подошёл срок, в пределах часового бюджета загрузок.
+     * Во время полной индексации не выполняется, а её запуск останавливает повторную загрузку.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${indexing-settings.recrawl.check-interval:60000}")
+    public void recrawlDuePages() {
+        IndexingSettings.Recrawl recrawl = settings.getRecrawl();
+        long now = System.currentTimeMillis();
+        long elapsed = lastRun == 0 ? recrawl.getCheckInterval() : now - lastRun;
+        lastRun = now;
+
+        if (!recrawl.isEnabled() || IndexingServiceImpl.isStarted()) {
+            return;
+        }
+
+        CancellationToken token = new CancellationToken();
+
+        // признак запуска индексации проверяется повторно под той же блокировкой, что и в stop
+        synchronized (this) {
+            if (IndexingServiceImpl.isStarted()) {
+                return;
+            }
+
+            running = token;
+        }
+
+        try {
+            recrawl(token, now, elapsed);
+        } finally {
+            synchronized (this) {
+                running = null;
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running != null;
+    }
+
+    @Override
+    public synchronized boolean stop(long timeout) throws InterruptedException {
+        if (running != null) {
+            running.cancel();
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (running != null) {
+            long left = deadline - System.currentTimeMillis();
+
+            if (left <= 0) {
+                return false;
+            }
+
+            wait(left);
+        }
+
+        return true;
+    }
+
+    private void recrawl(CancellationToken token, long now, long elapsed) {
+        IndexingSettings.Recrawl recrawl = settings.getRecrawl();
+
+        budget = Math.min(recrawl.getBudgetPerHour(), budget + recrawl.getBudgetPerHour() * elapsed / 3_600_000.0);
+        int limit = (int) budget;
+
+        if (limit == 0) {
+            return;
+        }
+
+        List<Page> due = pageDao.getDue(new Date(now), limit);
+
+        if (due.isEmpty()) {
+            return;
+        }
+
+        budget -= due.size();
+        logger.info("Recrawling {} due pages", due.size());
+
+        try {
+            new Recrawler(CrawlScheduler.getInstance(settings), settings).recrawl(due, token);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package searchengine.services;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Service;
+import searchengine.businessLogic.LemmaCounts;
 import searchengine.businessLogic.LemmaFinder;
+import searchengine.businessLogic.PageDocument;
+import searchengine.businessLogic.TermDictionary;
 import searchengine.dao.IndexDao;
 import searchengine.dao.LemmaDao;
 import searchengine.dao.PageDao;
@@ -34,6 +35,7 @@ public class SearchServiceImpl implements SearchService {
     private final PageDao pageDao = new PageDao();
     private final IndexDao indexDao = new IndexDao();
     private final LemmaFinder lemmaFinder = LemmaFinder.getInstance();
+    private final TermDictionary terms = TermDictionary.getInstance();
 
     /**
      * Поиск строки по индексированным страницам.
@@ -54,7 +56,7 @@ public class SearchServiceImpl implements SearchService {
         if (sites.isEmpty())
             return createFailureResponse(ERRORS[0]);
 
-        HashMap<String, Integer> lemmasMap = lemmaFinder.getLemmas(query);
+        LemmaCounts lemmasMap = lemmaFinder.getLemmas(query);
         HashMap<Page, Float> relevantPages = getPages(sites, lemmasMap);
 
         if (relevantPages.isEmpty())
@@ -86,13 +88,18 @@ public class SearchServiceImpl implements SearchService {
         return sites;
     }
 
-    private HashMap<Page, Float> getPages(List<Site> sites, HashMap<String, Integer> lemmasMap) {
+    private HashMap<Page, Float> getPages(List<Site> sites, LemmaCounts lemmasMap) {
         HashMap<Page, Float> relevantPages = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        lemmasMap.forEach((k, v) -> words.add(k));
+        // слова, которых нет в словаре, не встречаются ни на одном сайте
+        Object[] termIds = terms.find(words).values().toArray();
+
+        if (termIds.length == 0)
+            return relevantPages;
 
         for (searchengine.model.Site site : sites) {
-            List<String> words = new ArrayList<>();
-            lemmasMap.forEach((k, v) -> words.add(k));
-            List<Lemma> lemmas = lemmaDao.getLemmasByListAndSite(words.toArray(), site).orElse(new ArrayList<>());
+            List<Lemma> lemmas = lemmaDao.getLemmasByListAndSite(termIds, site).orElse(new ArrayList<>());
 
             double threshold = lemmas.size() / (double) lemmasMap.size() * 100.0;
 
@@ -187,13 +194,11 @@ public class SearchServiceImpl implements SearchService {
     }
 
     private String getPageTitle(Page page) {
-        String content = page.getContent();
-        Document document = Jsoup.parse(content);
-        return document.title().replaceAll("\\\\", "");
+        return PageDocument.of(page).getTitle().replaceAll("\\\\", "");
     }
 
     private String getSnippet(Page page, String query) {
-        String text = Jsoup.parse(page.getContent()).text();
+        String text = PageDocument.of(page).getText();
         String[] words = query.split("\\s");
         List<String> wordsVariations = new ArrayList<>();
 
@@ -2,6 +2,11 @@ package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import searchengine.businessLogic.ConcurrencyLimiter;
+import searchengine.businessLogic.LemmaFinder;
+import searchengine.businessLogic.MemoryGovernor;
+import searchengine.businessLogic.SiteParserHandler;
+import searchengine.config.IndexingSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.dao.LemmaDao;
@@ -22,6 +27,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
     private final SitesList sites;
+    private final IndexingSettings settings;
 
     private final PageDao pageDao = new PageDao();
     private final LemmaDao lemmaDao = new LemmaDao();
@@ -34,6 +40,12 @@ public class StatisticsServiceImpl implements StatisticsService {
         TotalStatistics total = new TotalStatistics();
         total.setSites(sites.getSites().size());
         total.setIndexing(true);
+        MemoryGovernor memory = MemoryGovernor.getInstance(settings.getMemory());
+        total.setMemoryPressure(memory.getLevel().name());
+        total.setHeapOccupancy((int) Math.round(memory.getOccupancy() * 100));
+        LemmaFinder lemmaFinder = LemmaFinder.getInstance();
+        total.setLemmaCacheHits(lemmaFinder.getCacheHits());
+        total.setLemmaCacheMisses(lemmaFinder.getCacheMisses());
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
         List<Site> sitesList = sites.getSites();
@@ -46,6 +58,10 @@ public class StatisticsServiceImpl implements StatisticsService {
             int lemmas = getLemmasCount(site);
             item.setPages(pages);
             item.setLemmas(lemmas);
+            int duplicates = getDuplicatesCount(site);
+            item.setDuplicates(duplicates);
+            item.setCrawlConcurrency(ConcurrencyLimiter.getLimit(site.getUrl()));
+            item.setStopLatency(SiteParserHandler.getStopLatency(site.getUrl()));
 
             searchengine.model.Site s = getSite(site);
             if (s == null) {
@@ -58,6 +74,7 @@ public class StatisticsServiceImpl implements StatisticsService {
 
             total.setPages(total.getPages() + pages);
             total.setLemmas(total.getLemmas() + lemmas);
+            total.setDuplicates(total.getDuplicates() + duplicates);
             detailed.add(item);
         }
 
@@ -75,6 +92,11 @@ public class StatisticsServiceImpl implements StatisticsService {
         return pageDao.getCount(s);
     }
 
+    private int getDuplicatesCount(Site site) {
+        searchengine.model.Site s = getSite(site);
+        return s == null ? 0 : pageDao.getDuplicatesCount(s);
+    }
+
     private int getLemmasCount(Site site) {
         searchengine.model.Site s = getSite(site);
         return lemmaDao.getCount(s);
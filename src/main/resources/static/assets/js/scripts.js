@@ -1623,6 +1623,8 @@ var API = function(){
                                 time.getSeconds() +
                                 '</div><div class="Statistics-option"><strong>Pages:</strong> ' + site.pages +
                                 '</div><div class="Statistics-option"><strong>Lemmas:</strong> ' + site.lemmas +
+                                '</div><div class="Statistics-option"><strong>Duplicates:</strong> ' + site.duplicates +
+                                '</div><div class="Statistics-option"><strong>Crawl concurrency:</strong> ' + site.crawlConcurrency +
                                 '</div><div class="Statistics-option Statistics-option_error"><strong>Error:</strong> ' + site.error + '</div>'+
                                 '')
     
@@ -0,0 +1,48 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+    @Test
+    void containsAddedValues() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("/page" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("/page" + i));
+            assertFalse(filter.put("/page" + i));
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearExpected() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("/page" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("/other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void sizesBitArrayByExpectedInsertions() {
+        long small = new BloomFilter(1_000, 0.01).getSizeInBytes();
+        long large = new BloomFilter(100_000, 0.01).getSizeInBytes();
+
+        assertTrue(small >= 1_000 * 9.5 / 8);
+        assertTrue(large > small * 90);
+    }
+}
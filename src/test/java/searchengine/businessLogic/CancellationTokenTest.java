@@ -0,0 +1,82 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationTokenTest {
+    @Test
+    void runsRegisteredActionsOnceOnCancel() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger runs = new AtomicInteger();
+        token.onCancel(runs::incrementAndGet);
+
+        assertFalse(token.isCancelled());
+        assertEquals(-1, token.getMillisSinceCancel());
+
+        token.cancel();
+        token.cancel();
+
+        assertTrue(token.isCancelled());
+        assertEquals(1, runs.get());
+        assertTrue(token.getMillisSinceCancel() >= 0);
+    }
+
+    @Test
+    void runsActionImmediatelyWhenAlreadyCancelled() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AtomicInteger runs = new AtomicInteger();
+
+        token.onCancel(runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void skipsActionsWithClosedRegistration() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger runs = new AtomicInteger();
+
+        try (CancellationToken.Registration ignored = token.onCancel(runs::incrementAndGet)) {
+            assertFalse(token.isCancelled());
+        }
+        token.cancel();
+
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void runsEachActionOnceWhenCancelledConcurrently() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            token.onCancel(runs::incrementAndGet);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    token.cancel();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertEquals(100, runs.get());
+    }
+}
@@ -0,0 +1,94 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    private static ConcurrencyLimiter limiter(int initial, int min, int max) {
+        IndexingSettings.Concurrency settings = new IndexingSettings.Concurrency();
+        settings.setInitial(initial);
+        settings.setMin(min);
+        settings.setMax(max);
+        return new ConcurrencyLimiter(settings);
+    }
+
+    @Test
+    void startsFromInitialLimitWithinBounds() {
+        assertEquals(4, limiter(4, 1, 32).getLimit());
+        assertEquals(8, limiter(100, 1, 8).getLimit());
+        assertEquals(2, limiter(0, 2, 8).getLimit());
+    }
+
+    @Test
+    void growsByAboutOnePerRoundOfFastResponses() {
+        ConcurrencyLimiter limiter = limiter(4, 1, 32);
+        int responses = 0;
+
+        while (limiter.getLimit() == 4) {
+            limiter.onResponse(FAST, false);
+            responses++;
+        }
+
+        assertEquals(5, limiter.getLimit());
+        assertTrue(responses >= 4 && responses <= 5, "responses: " + responses);
+    }
+
+    @Test
+    void neverExceedsMaximum() {
+        ConcurrencyLimiter limiter = limiter(4, 1, 8);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onResponse(FAST, false);
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void decreasesOnFailureAndSlowResponse() {
+        ConcurrencyLimiter failed = limiter(16, 1, 32);
+        failed.onResponse(FAST, true);
+        assertEquals(8, failed.getLimit());
+
+        ConcurrencyLimiter slow = limiter(16, 1, 32);
+        slow.onResponse(SLOW, false);
+        assertEquals(8, slow.getLimit());
+    }
+
+    @Test
+    void decreasesOnceForResponsesToRequestsSentBeforeDecrease() {
+        ConcurrencyLimiter limiter = limiter(16, 1, 32);
+
+        limiter.onResponse(SLOW, true);
+        limiter.onResponse(SLOW, true);
+        limiter.onResponse(SLOW, true);
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void neverFallsBelowMinimum() {
+        ConcurrencyLimiter limiter = limiter(16, 2, 32);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(0, true);
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void reportsRegisteredLimitPerSite() {
+        ConcurrencyLimiter.register("https://limited.example.com", limiter(6, 1, 32));
+
+        assertEquals(6, ConcurrencyLimiter.getLimit("https://limited.example.com"));
+        assertEquals(0, ConcurrencyLimiter.getLimit("https://unknown.example.com"));
+    }
+}
@@ -0,0 +1,41 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateIndexTest {
+    private static final long HASH = 0x0123_4567_89ab_cdefL;
+
+    @Test
+    void findsFingerprintsWithinMaxDistance() {
+        DuplicateIndex index = new DuplicateIndex();
+        index.add(1, HASH);
+
+        assertEquals(1, index.find(HASH));
+        assertEquals(1, index.find(HASH ^ 1L ^ 1L << 20 ^ 1L << 40));
+        assertNull(index.find(HASH ^ 1L ^ 1L << 20 ^ 1L << 40 ^ 1L << 60));
+        assertNull(index.find(~HASH));
+    }
+
+    @Test
+    void findsNearDuplicateWhenAllBandsButOneDiffer() {
+        DuplicateIndex index = new DuplicateIndex();
+        index.add(1, HASH);
+
+        // различия в трёх частях из четырёх: совпадает только старшая часть
+        assertEquals(1, index.find(HASH ^ 1L ^ 1L << 16 ^ 1L << 32));
+    }
+
+    @Test
+    void forgetsRemovedPages() {
+        DuplicateIndex index = new DuplicateIndex();
+        index.add(1, HASH);
+        index.add(2, HASH ^ 1L);
+        index.remove(1, HASH);
+
+        assertEquals(2, index.find(HASH));
+        index.remove(2, HASH ^ 1L);
+        assertNull(index.find(HASH));
+    }
+}
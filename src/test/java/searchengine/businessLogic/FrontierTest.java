@@ -0,0 +1,83 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrontierTest {
+    @Test
+    void addsEachPathOnce() {
+        Frontier frontier = new Frontier(100, 0.01, KnownPages.empty());
+
+        assertTrue(frontier.add("/a", 1, null));
+        assertFalse(frontier.add("/a", 2, null));
+        assertEquals("/a", frontier.poll().path());
+        assertFalse(frontier.add("/a", 1, null));
+        assertNull(frontier.poll());
+        assertEquals(1, frontier.getVisitedCount());
+    }
+
+    @Test
+    void pollsShallowAndPopularPathsFirst() {
+        Frontier frontier = new Frontier(100, 0.01, KnownPages.empty());
+        frontier.add("/deep", 3, null);
+        frontier.add("/shallow", 1, null);
+        frontier.add("/popular", 3, null);
+        frontier.add("/popular", 3, null);
+        frontier.add("/popular", 3, null);
+        frontier.add("/popular", 3, null);
+
+        assertEquals("/shallow", frontier.poll().path());
+        assertEquals("/popular", frontier.poll().path());
+        assertEquals("/deep", frontier.poll().path());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void neverSkipsKnownPagesEvenWithHighFalsePositiveRate() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            rows.add(new Object[]{i, "/known" + i, null, null, null, new Date(), 0L});
+        }
+        Frontier frontier = new Frontier(1_000, 0.3, new KnownPages(null, rows));
+
+        for (int i = 0; i < 50_000; i++) {
+            frontier.add("/new" + i, 1, null);
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(frontier.add("/known" + i, 1, null), "/known" + i);
+        }
+    }
+
+    @Test
+    void growsFilterWhenMoreUrlsThanExpected() {
+        Frontier frontier = new Frontier(1, 0.01, KnownPages.empty());
+        long initial = frontier.getVisitedSizeInBytes();
+
+        for (int i = 0; i < 70_000; i++) {
+            frontier.add("/page" + i, 1, null);
+        }
+
+        assertTrue(frontier.getVisitedSizeInBytes() > initial);
+        assertFalse(frontier.add("/page1", 1, null));
+    }
+
+    @Test
+    void tracksPendingPaths() {
+        Frontier frontier = new Frontier(100, 0.01, KnownPages.empty());
+        frontier.add("/a", 1, null);
+        frontier.add("/b", 1, null);
+        frontier.add("/c", 1, null);
+
+        frontier.poll();
+        assertEquals(2, frontier.complete());
+        frontier.poll();
+        assertEquals(1, frontier.drain());
+        assertEquals(0, frontier.complete());
+    }
+}
@@ -0,0 +1,73 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlScannerTest {
+    @Test
+    void extractsTitleTextAndLinks() {
+        PageDocument document = HtmlScanner.scan("""
+                <html><head><title>Главная</title><style>p { color: red; }</style></head>
+                <body><p>Hello <b>world</b></p><a href="/about">About</a>
+                <script>var x = "<a href='/hidden'>";</script><!-- <a href="/comment"> -->
+                <A HREF='/contacts?a=1&amp;b=2'>Contacts</A></body></html>
+                """);
+
+        assertNotNull(document);
+        assertEquals("Главная", document.getTitle());
+        assertEquals("Главная Hello world About Contacts", document.getText());
+        assertEquals(List.of("/about", "/contacts?a=1&b=2"), document.getLinks());
+    }
+
+    @Test
+    void separatesBlockElementsButNotInlineOnes() {
+        PageDocument document = HtmlScanner.scan("<div>one</div><div>two</div><span>th</span><i>ree</i>");
+
+        assertEquals("one two three", document.getText());
+    }
+
+    @Test
+    void decodesEntitiesAndCollapsesWhitespace() {
+        PageDocument document = HtmlScanner.scan("<p>a&nbsp;&amp;\n\n  b</p>");
+
+        assertEquals("a & b", document.getText());
+    }
+
+    @Test
+    void keepsLoneLessThanSignInText() {
+        PageDocument document = HtmlScanner.scan("<p>1 < 2</p>");
+
+        assertEquals("1 < 2", document.getText());
+    }
+
+    @Test
+    void deduplicatesLinks() {
+        PageDocument document = HtmlScanner.scan("<a href=\"/a\">1</a><a href=\" /a \">2</a><a>3</a><a href=\"\">4</a>");
+
+        assertEquals(List.of("/a"), document.getLinks());
+    }
+
+    @Test
+    void refusesBrokenMarkup() {
+        assertNull(HtmlScanner.scan("<p>text<!-- unclosed comment"));
+        assertNull(HtmlScanner.scan("<p>text<script>var x = 1;"));
+        assertNull(HtmlScanner.scan("<p>text<a href=\"/a"));
+    }
+
+    @Test
+    void detectsCharset() {
+        byte[] bom = {(byte) 0xef, (byte) 0xbb, (byte) 0xbf, 'a'};
+        byte[] meta = "<html><head><meta charset=\"windows-1251\">".getBytes(StandardCharsets.US_ASCII);
+        byte[] plain = "<html>".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(StandardCharsets.UTF_8, HtmlScanner.detectCharset(bom, "windows-1251"));
+        assertEquals(Charset.forName("windows-1251"), HtmlScanner.detectCharset(meta, null));
+        assertEquals(StandardCharsets.ISO_8859_1, HtmlScanner.detectCharset(meta, "ISO-8859-1"));
+        assertEquals(StandardCharsets.UTF_8, HtmlScanner.detectCharset(plain, "unknown-charset"));
+    }
+}
@@ -0,0 +1,97 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+import searchengine.model.Page;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnownPagesTest {
+    private static final String HASH = "00ff".repeat(16);
+
+    private static Object[] row(int id, String path) {
+        return new Object[]{id, path, "\"etag-" + id + "\"", null, HASH, new Date(1_000L * id), 60_000L};
+    }
+
+    @Test
+    void findsPagesByPath() {
+        KnownPages known = new KnownPages(null, List.of(row(1, "/"), row(2, "/страница"), row(3, "/a?b=c")));
+
+        assertEquals(3, known.size());
+        assertEquals(1, known.indexOf("/страница"));
+        assertEquals(-1, known.indexOf("/missing"));
+        assertNull(known.get("/missing"));
+
+        Page page = known.get("/a?b=c");
+        assertEquals(3, page.getId());
+        assertEquals("/a?b=c", page.getPath());
+        assertEquals("\"etag-3\"", page.getEtag());
+        assertEquals(HASH, page.getContentHash());
+        assertEquals(new Date(3_000L), page.getLastChanged());
+        assertEquals(60_000L, page.getRevisitInterval());
+    }
+
+    @Test
+    void returnsPagesNotSeenDuringCrawl() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(row(i, "/page" + i));
+        }
+        KnownPages known = new KnownPages(null, rows);
+
+        for (int i = 0; i < 200; i++) {
+            if (i != 7 && i != 130) {
+                known.markSeen("/page" + i);
+            }
+        }
+        known.markSeen("/unknown");
+
+        List<Page> unseen = known.getUnseen();
+        assertEquals(2, unseen.size());
+        assertEquals("/page7", unseen.get(0).getPath());
+        assertEquals("/page130", unseen.get(1).getPath());
+    }
+
+    @Test
+    void marksPageDiscoveredOnlyOnce() {
+        KnownPages known = new KnownPages(null, List.of(row(1, "/"), row(2, "/a")));
+
+        assertTrue(known.markDiscovered(1));
+        assertFalse(known.markDiscovered(1));
+        assertTrue(known.markDiscovered(0));
+    }
+
+    @Test
+    void forgetsValidatorsOfReleasedPages() {
+        KnownPages known = new KnownPages(null, List.of(row(1, "/"), row(2, "/a"), row(3, "/b")));
+
+        known.release(List.of(2, 42));
+
+        Page released = known.get("/a");
+        assertEquals(2, released.getId());
+        assertNull(released.getEtag());
+        assertNull(released.getContentHash());
+        assertEquals(60_000L, released.getRevisitInterval());
+        assertEquals("\"etag-3\"", known.get("/b").getEtag());
+        assertEquals(HASH, known.get("/b").getContentHash());
+    }
+
+    @Test
+    void ignoresMalformedContentHash() {
+        Object[] row = row(1, "/");
+        row[4] = "not a hash";
+        KnownPages known = new KnownPages(null, List.<Object[]>of(row));
+
+        assertNull(known.get("/").getContentHash());
+    }
+
+    @Test
+    void emptyPagesContainNothing() {
+        assertEquals(0, KnownPages.empty().size());
+        assertEquals(-1, KnownPages.empty().indexOf("/"));
+        assertTrue(KnownPages.empty().getUnseen().isEmpty());
+    }
+}
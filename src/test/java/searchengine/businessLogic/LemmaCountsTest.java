@@ -0,0 +1,60 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LemmaCountsTest {
+    @Test
+    void sumsCountsOfEachLemma() {
+        LemmaCounts counts = new LemmaCounts();
+        counts.add("кот", 1);
+        counts.add("дом", 2);
+        counts.add("кот", 3);
+
+        assertEquals(2, counts.size());
+        assertEquals(4, counts.get("кот"));
+        assertEquals(2, counts.get("дом"));
+        assertEquals(0, counts.get("собака"));
+    }
+
+    @Test
+    void keepsCountsWhenGrowing() {
+        LemmaCounts counts = new LemmaCounts();
+
+        for (int i = 0; i < 10_000; i++) {
+            counts.add("lemma" + i, i);
+            counts.add("lemma" + i, 1);
+        }
+
+        assertEquals(10_000, counts.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i + 1, counts.get("lemma" + i));
+        }
+    }
+
+    @Test
+    void visitsEachLemmaOnce() {
+        LemmaCounts counts = new LemmaCounts();
+        counts.add("a", 1);
+        counts.add("b", 2);
+        counts.add("a", 1);
+
+        Map<String, Integer> visited = new HashMap<>();
+        counts.forEach((lemma, count) -> assertNull(visited.put(lemma, count)));
+
+        assertEquals(Map.of("a", 2, "b", 2), visited);
+    }
+
+    @Test
+    void isEmptyInitially() {
+        LemmaCounts counts = new LemmaCounts();
+
+        assertTrue(counts.isEmpty());
+        counts.add("a", 1);
+        assertFalse(counts.isEmpty());
+    }
+}
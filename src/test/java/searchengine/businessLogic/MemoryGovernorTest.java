@@ -0,0 +1,43 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static searchengine.businessLogic.MemoryGovernor.Level.*;
+
+class MemoryGovernorTest {
+    @Test
+    void keepsLimitsUnderNormalLoad() {
+        assertEquals(64, MemoryGovernor.scale(64, NORMAL));
+        assertEquals(1, MemoryGovernor.scale(1, NORMAL));
+    }
+
+    @Test
+    void halvesLimitsUnderElevatedLoad() {
+        assertEquals(32, MemoryGovernor.scale(64, ELEVATED));
+        assertEquals(1, MemoryGovernor.scale(3, ELEVATED));
+        assertEquals(1, MemoryGovernor.scale(1, ELEVATED));
+    }
+
+    @Test
+    void reducesLimitsToOneUnderCriticalLoad() {
+        assertEquals(1, MemoryGovernor.scale(64, CRITICAL));
+        assertEquals(0, MemoryGovernor.scale(0, CRITICAL));
+    }
+
+    @Test
+    void raisesLevelAtThresholds() {
+        assertEquals(NORMAL, MemoryGovernor.getLevel(0.5, NORMAL, 0.7, 0.85));
+        assertEquals(ELEVATED, MemoryGovernor.getLevel(0.7, NORMAL, 0.7, 0.85));
+        assertEquals(CRITICAL, MemoryGovernor.getLevel(0.9, NORMAL, 0.7, 0.85));
+    }
+
+    @Test
+    void lowersLevelOnlyBelowHysteresis() {
+        assertEquals(CRITICAL, MemoryGovernor.getLevel(0.82, CRITICAL, 0.7, 0.85));
+        assertEquals(ELEVATED, MemoryGovernor.getLevel(0.78, CRITICAL, 0.7, 0.85));
+        assertEquals(ELEVATED, MemoryGovernor.getLevel(0.67, ELEVATED, 0.7, 0.85));
+        assertEquals(NORMAL, MemoryGovernor.getLevel(0.6, ELEVATED, 0.7, 0.85));
+        assertEquals(NORMAL, MemoryGovernor.getLevel(0.67, NORMAL, 0.7, 0.85));
+    }
+}
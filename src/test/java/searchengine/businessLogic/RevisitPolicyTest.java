@@ -0,0 +1,74 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+import searchengine.model.Page;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevisitPolicyTest {
+    private static final long HOUR = Duration.ofHours(1).toSeconds();
+    private final RevisitPolicy policy = new RevisitPolicy(new IndexingSettings.Recrawl());
+
+    private static Page previous(long interval) {
+        Page page = new Page();
+        page.setRevisitInterval(interval);
+        page.setLastChanged(new Date(1_000));
+        return page;
+    }
+
+    private static long fetch(RevisitPolicy policy, Page previous, boolean changed) {
+        Page page = new Page();
+        policy.onFetched(page, previous, changed);
+        return page.getRevisitInterval();
+    }
+
+    @Test
+    void schedulesNewPageWithInitialInterval() {
+        Page page = new Page();
+        policy.onFetched(page, null, true);
+
+        assertEquals(Duration.ofDays(1).toSeconds(), page.getRevisitInterval());
+        assertEquals(page.getLastFetched(), page.getLastChanged());
+        assertEquals(page.getLastFetched().getTime() + Duration.ofDays(1).toMillis(), page.getNextFetch().getTime());
+        assertEquals(Duration.ofDays(1).toSeconds(), fetch(policy, previous(0), false));
+    }
+
+    @Test
+    void shortensIntervalOfChangedPage() {
+        Page page = new Page();
+        policy.onFetched(page, previous(4 * HOUR), true);
+
+        assertEquals(2 * HOUR, page.getRevisitInterval());
+        assertEquals(page.getLastFetched(), page.getLastChanged());
+    }
+
+    @Test
+    void lengthensIntervalOfUnchangedPage() {
+        Page page = new Page();
+        policy.onFetched(page, previous(4 * HOUR), false);
+
+        assertEquals(6 * HOUR, page.getRevisitInterval());
+        assertEquals(new Date(1_000), page.getLastChanged());
+    }
+
+    @Test
+    void keepsIntervalWithinBounds() {
+        assertEquals(HOUR, fetch(policy, previous(HOUR), true));
+        assertEquals(Duration.ofDays(30).toSeconds(), fetch(policy, previous(Duration.ofDays(29).toSeconds()), false));
+    }
+
+    @Test
+    void postponesFailedPageByMinimumInterval() {
+        Page page = previous(4 * HOUR);
+        long before = System.currentTimeMillis();
+        policy.postpone(page);
+
+        assertEquals(4 * HOUR, page.getRevisitInterval());
+        assertTrue(page.getNextFetch().getTime() >= before + Duration.ofHours(1).toMillis());
+        assertTrue(page.getNextFetch().getTime() <= System.currentTimeMillis() + Duration.ofHours(1).toMillis());
+    }
+}
@@ -0,0 +1,121 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsRulesTest {
+    private static final String AGENT = "SearchEngineBot/1.0";
+
+    @Test
+    void usesGroupForAllAgentsWhenOwnGroupIsMissing() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                Disallow: /
+
+                User-agent: *
+                Disallow: /admin
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/admin/users"));
+        assertTrue(rules.isAllowed("/news"));
+    }
+
+    @Test
+    void prefersOwnGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: searchenginebot
+                Disallow: /private
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/news"));
+        assertFalse(rules.isAllowed("/private/1"));
+    }
+
+    @Test
+    void appliesEmptyOwnGroupInsteadOfGroupForAllAgents() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: SearchEngineBot
+                Disallow:
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(rules.isAllowed("/news"));
+    }
+
+    @Test
+    void sharesRulesBetweenAgentsOfOneGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                User-agent: SearchEngineBot
+                Disallow: /tmp # временные файлы
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/tmp/file"));
+    }
+
+    @Test
+    void appliesLongestMatchingRule() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /catalog
+                Allow: /catalog/public
+                Disallow: /catalog/public/drafts
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/catalog/1"));
+        assertTrue(rules.isAllowed("/catalog/public/1"));
+        assertFalse(rules.isAllowed("/catalog/public/drafts/1"));
+    }
+
+    @Test
+    void prefersAllowOnEqualLength() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /page
+                Allow: /page
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/page"));
+    }
+
+    @Test
+    void supportsWildcardsAndEndAnchor() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*?sort=
+                Disallow: /*.pdf$
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/catalog?sort=price"));
+        assertTrue(rules.isAllowed("/catalog?page=2"));
+        assertFalse(rules.isAllowed("/files/report.pdf"));
+        assertTrue(rules.isAllowed("/files/report.pdf.html"));
+    }
+
+    @Test
+    void collectsSitemapsOutsideGroups() {
+        RobotsRules rules = RobotsRules.parse("""
+                Sitemap: https://example.com/sitemap.xml
+                User-agent: *
+                Disallow:
+                Sitemap: https://example.com/news.xml
+                """, AGENT);
+
+        assertEquals(List.of("https://example.com/sitemap.xml", "https://example.com/news.xml"), rules.getSitemaps());
+    }
+
+    @Test
+    void allowAllAllowsEverything() {
+        assertTrue(RobotsRules.allowAll().isAllowed("/any/path"));
+        assertTrue(RobotsRules.allowAll().getSitemaps().isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimHashTest {
+    private static LemmaCounts lemmas(String prefix, int from, int to) {
+        LemmaCounts counts = new LemmaCounts();
+
+        for (int i = from; i < to; i++) {
+            counts.add(prefix + i, 1 + i % 3);
+        }
+
+        return counts;
+    }
+
+    @Test
+    void skipsPagesWithTooFewLemmas() {
+        assertNull(SimHash.of(lemmas("слово", 0, SimHash.MIN_LEMMAS - 1)));
+        assertNotNull(SimHash.of(lemmas("слово", 0, SimHash.MIN_LEMMAS)));
+    }
+
+    @Test
+    void isStableForSameLemmas() {
+        assertEquals(SimHash.of(lemmas("слово", 0, 100)), SimHash.of(lemmas("слово", 0, 100)));
+    }
+
+    @Test
+    void nearDuplicatesAreCloserThanDifferentPages() {
+        long page = SimHash.of(lemmas("слово", 0, 200));
+        LemmaCounts edited = lemmas("слово", 0, 200);
+        edited.add("новое", 1);
+        edited.add("слово7", 1);
+        long nearDuplicate = SimHash.of(edited);
+        long different = SimHash.of(lemmas("другое", 0, 200));
+
+        assertTrue(SimHash.distance(page, nearDuplicate) <= DuplicateIndex.MAX_DISTANCE);
+        assertTrue(SimHash.distance(page, different) > DuplicateIndex.MAX_DISTANCE);
+    }
+
+    @Test
+    void countsDifferentBits() {
+        assertEquals(0, SimHash.distance(0b1011, 0b1011));
+        assertEquals(2, SimHash.distance(0b1011, 0b0001));
+        assertEquals(64, SimHash.distance(0, -1));
+    }
+}
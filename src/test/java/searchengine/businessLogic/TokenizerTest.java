@@ -0,0 +1,51 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerTest {
+    private static List<String> tokenize(String text, int minLength) {
+        List<String> words = new ArrayList<>();
+        Tokenizer.tokenize(text, minLength, (word, script) -> words.add(script + ":" + word));
+        return words;
+    }
+
+    @Test
+    void splitsTextIntoLowerCaseWords() {
+        assertEquals(List.of("RUSSIAN:привет", "ENGLISH:hello", "RUSSIAN:мир"),
+                tokenize("Привет, HELLO!\nМир...", 1));
+    }
+
+    @Test
+    void splitsWordsOnScriptChange() {
+        assertEquals(List.of("ENGLISH:abc", "RUSSIAN:где", "ENGLISH:e"), tokenize("abcгдеe", 1));
+    }
+
+    @Test
+    void treatsDigitsAndHyphensAsSeparators() {
+        assertEquals(List.of("ENGLISH:covid", "RUSSIAN:северо", "RUSSIAN:запад"), tokenize("covid19 северо-запад", 1));
+    }
+
+    @Test
+    void replacesYo() {
+        assertEquals(List.of("RUSSIAN:еж", "RUSSIAN:елка"), tokenize("Ёж ёлка", 1));
+    }
+
+    @Test
+    void skipsShortWords() {
+        assertEquals(List.of("ENGLISH:the", "RUSSIAN:кот"), tokenize("a the в кот", 3));
+    }
+
+    @Test
+    void handlesLongWordsAndEmptyText() {
+        String longWord = "а".repeat(100);
+
+        assertEquals(List.of("RUSSIAN:" + longWord), tokenize(longWord, 1));
+        assertTrue(tokenize("", 1).isEmpty());
+        assertTrue(tokenize("123 !?", 1).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexingSettings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTest {
+    private final UrlCanonicalizer canonicalizer =
+            new UrlCanonicalizer("https://example.com", new IndexingSettings.Canonicalization());
+
+    @Test
+    void collapsesVariantsOfOnePath() {
+        assertEquals("/a", canonicalizer.canonicalize("/a"));
+        assertEquals("/a", canonicalizer.canonicalize("/a/"));
+        assertEquals("/a", canonicalizer.canonicalize("/a?utm_source=x"));
+        assertEquals("/a", canonicalizer.canonicalize("/./a"));
+        assertEquals("/a", canonicalizer.canonicalize("/a//"));
+        assertEquals("/a", canonicalizer.canonicalize("/b/../a"));
+        assertEquals("/a", canonicalizer.canonicalize("/../a"));
+        assertEquals("/a", canonicalizer.canonicalize("/a?"));
+        assertEquals("/a", canonicalizer.canonicalize("https://www.example.com/a#section"));
+        assertEquals("/a", canonicalizer.canonicalize("HTTP://EXAMPLE.COM/a"));
+    }
+
+    @Test
+    void canonicalizesRoot() {
+        assertEquals("/", canonicalizer.canonicalize("https://example.com"));
+        assertEquals("/", canonicalizer.canonicalize("/"));
+        assertEquals("/", canonicalizer.canonicalize("/?utm_medium=email"));
+    }
+
+    @Test
+    void resolvesRelativeLinks() {
+        String base = "https://example.com/dir/page";
+
+        assertEquals("/dir/other", canonicalizer.canonicalize(base, "other"));
+        assertEquals("/up", canonicalizer.canonicalize(base, "../up"));
+        assertEquals("/dir/page", canonicalizer.canonicalize(base, "#top"));
+    }
+
+    @Test
+    void resolvesQueryOnlyLinksAgainstPage() {
+        assertEquals("/dir/page?p=2", canonicalizer.canonicalize("https://example.com/dir/page", "?p=2"));
+        assertEquals("/dir/page?p=2", canonicalizer.canonicalize("https://example.com/dir/page?p=1", "?p=2"));
+        assertEquals("/?p=2", canonicalizer.canonicalize("https://example.com", "?p=2"));
+    }
+
+    @Test
+    void sortsQueryAndDropsTrackingParameters() {
+        assertEquals("/s?a=1&b=2", canonicalizer.canonicalize("/s?b=2&a=1"));
+        assertEquals("/s?a=1", canonicalizer.canonicalize("/s?fbclid=x&a=1&utm_campaign=y&&"));
+        assertEquals("/s?q=%D0%B0", canonicalizer.canonicalize("/s?q=%d0%b0"));
+    }
+
+    @Test
+    void normalizesPercentEncodingAndKeepsCaseOfPath() {
+        assertEquals("/%D0%B0", canonicalizer.canonicalize("/%d0%b0"));
+        assertEquals("/a%20b", canonicalizer.canonicalize("/a b"));
+        assertEquals("/About", canonicalizer.canonicalize("/About"));
+    }
+
+    @Test
+    void lowercasesPathWhenEnabled() {
+        IndexingSettings.Canonicalization settings = new IndexingSettings.Canonicalization();
+        settings.setLowercasePath(true);
+        UrlCanonicalizer lowercase = new UrlCanonicalizer("https://example.com", settings);
+
+        assertEquals("/about", lowercase.canonicalize("/About/"));
+    }
+
+    @Test
+    void rejectsLinksOutsideSite() {
+        String base = "https://example.com/";
+
+        assertNull(canonicalizer.canonicalize(base, "https://other.com/a"));
+        assertNull(canonicalizer.canonicalize(base, "//other.com/a"));
+        assertNull(canonicalizer.canonicalize(base, "https://sub.example.com/a"));
+        assertNull(canonicalizer.canonicalize(base, "mailto:info@example.com"));
+        assertNull(canonicalizer.canonicalize(base, "javascript:void(0)"));
+        assertNull(canonicalizer.canonicalize(base, "http://[broken"));
+        assertNull(canonicalizer.canonicalize(base, "  "));
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordCacheTest {
+    @Test
+    void returnsStoredValuesAndCountsHits() {
+        WordCache cache = new WordCache(10);
+        cache.put("коты", "кот");
+
+        assertEquals("кот", cache.get("коты"));
+        assertNull(cache.get("дома"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void staysWithinCapacity() {
+        WordCache cache = new WordCache(100);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("word" + i, "lemma" + i);
+        }
+
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void keepsFrequentWordsDuringScanOfRareWords() {
+        WordCache cache = new WordCache(100);
+
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "hot");
+            cache.get("hot" + i);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("cold" + i, "cold");
+
+            if (i % 100 == 0) {
+                for (int j = 0; j < 50; j++) {
+                    cache.get("hot" + j);
+                }
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals("hot", cache.get("hot" + i), "hot" + i);
+        }
+    }
+}